@@ -1,26 +1,67 @@
 import entity.CipherText;
 import interfaces.ICipherText;
 import interfaces.IKey;
+import loadtest.LoadTest;
+import pipeline.CipherPipeline;
+import pipeline.DocumentResult;
+import server.AnalysisServer;
+import service.AnalysisSession;
 import service.VigenereCipherBreaker;
 import service.KasiskiAnalyzer;
 import service.KasiskiAnalyzer.KeyLengthProbability;
+import service.LanguageIdentifier.LanguageCandidate;
 import util.Language;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
 
 public class App {
     private static final VigenereCipherBreaker cipherBreaker = new VigenereCipherBreaker();
     private static final KasiskiAnalyzer kasiskiAnalyzer = new KasiskiAnalyzer();
+    private static final int PRECOMPUTED_ALTERNATIVES = 3;  // Next-ranked key lengths prepared while the user reads a result
 
     // ANSI renk kodları
     private static final String ANSI_RED = "\u001B[31m";
     private static final String ANSI_RESET = "\u001B[0m";
 
     public static void main(String[] args) {
+        // Long-running HTTP mode for other tools: java App --server [--port=8080]
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                AnalysisServer.launch(args);
+            } catch (Exception e) {
+                System.out.println(ANSI_RED + "Failed to start server: " + e.getMessage() + ANSI_RESET);
+            }
+            return;
+        }
+
+        // Offline throughput/accuracy gate: java App --load-test [--workers=8] [--min-accuracy=0.95]
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            int status;
+            try {
+                status = LoadTest.launch(args);
+            } catch (Exception e) {
+                System.out.println(ANSI_RED + "Load test failed: " + e.getMessage() + ANSI_RESET);
+                status = 2;
+            }
+            System.exit(status);
+        }
+
+        // Non-interactive mode for many files: java App --batch a.txt b.txt ...
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+
         Scanner scanner = null;
         Scanner responseScanner = null;
+        AnalysisSession session = null;
         try {
             System.out.println("Vigenère Cipher Kasiski Analysis");
             System.out.println("===============================");
@@ -60,7 +101,7 @@ public class App {
                 return;
             }
 
-            // Create CipherText object (default English)
+            // Create CipherText object (language is detected after the key length is known)
             ICipherText cipherText = new CipherText(ciphertext, Language.ENGLISH);
             
             System.out.println("\nStarting analysis...");
@@ -82,7 +123,9 @@ public class App {
                 // Display possible key lengths and probabilities
                 System.out.println("\n2. Possible key lengths and probabilities:");
                 System.out.println("============================================");
-                List<KeyLengthProbability> keyLengthProbabilities = kasiskiAnalyzer.findPossibleKeyLengths(cipherText);
+                session = new AnalysisSession(cipherText, kasiskiAnalyzer, cipherBreaker,
+                    AnalysisSession.DEFAULT_MAX_CACHED_BYTES);
+                List<KeyLengthProbability> keyLengthProbabilities = session.findPossibleKeyLengths();
                 
                 if (keyLengthProbabilities.isEmpty()) {
                     throw new IllegalStateException("No possible key lengths found. The text might be too short or not a Vigenère cipher.");
@@ -100,6 +143,7 @@ public class App {
                 // Use the highest probability key length first
                 int selectedKeyLength = keyLengthProbabilities.get(0).getLength();
                 System.out.println("\nAutomatically using the highest probability key length: " + selectedKeyLength);
+                session.precomputeAlternatives(PRECOMPUTED_ALTERNATIVES);
 
                 boolean tryAgain;
                 responseScanner = new Scanner(System.in);
@@ -107,19 +151,26 @@ public class App {
                     try {
                         // Find key using selected key length
                         System.out.println("\n3. Starting key analysis for length " + selectedKeyLength + "...");
-                        cipherText.setExpectedKeyLength(selectedKeyLength);
-                        IKey key = cipherBreaker.analyzeKey(cipherText);
+                        List<LanguageCandidate> languageCandidates = session.identifyLanguages(selectedKeyLength);
                         
-                        if (key == null) {
+                        if (languageCandidates.isEmpty()) {
                             throw new IllegalStateException("Failed to find a valid key.");
                         }
 
+                        System.out.println("\nLanguage candidates (sorted by score):");
+                        for (LanguageCandidate candidate : languageCandidates) {
+                            System.out.println("  " + candidate);
+                        }
+                        LanguageCandidate bestCandidate = languageCandidates.get(0);
+                        IKey key = bestCandidate.getKey();
+
                         // Display results
+                        System.out.println("\nDetected language: " + bestCandidate.getLanguage());
                         System.out.println("\nProbable key found: " + ANSI_RED + key.getText() + ANSI_RESET);
                         
                         // Decrypt text
                         System.out.println("\n4. Decrypting text...");
-                        String plaintext = cipherBreaker.decrypt(cipherText, key);
+                        String plaintext = session.decrypt(key);
                         
                         System.out.println("\nResults:");
                         System.out.println("---------");
@@ -176,6 +227,9 @@ public class App {
             if (responseScanner != null) {
                 responseScanner.close();
             }
+            if (session != null) {
+                session.close();
+            }
         }
 
         // Language support information and language selection
@@ -184,11 +238,63 @@ public class App {
             String langResponse = responseScanner.nextLine().toUpperCase();
             
             if (langResponse.equals("Y")) {
-                System.out.println("Currently only English is supported.");
+                System.out.println("The language is detected automatically. Supported languages: " +
+                    java.util.Arrays.toString(Language.values()));
                 System.out.println("Turkish support will be added soon!");
             }
         } catch (Exception e) {
             System.out.println(ANSI_RED + "Error during language selection: " + e.getMessage() + ANSI_RESET);
         }
     }
+
+    private static void runBatch(String[] args) {
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        if (files.isEmpty()) {
+            System.out.println(ANSI_RED + "Error: No input files given!" + ANSI_RESET);
+            return;
+        }
+
+        CountDownLatch finished = new CountDownLatch(1);
+        try (CipherPipeline pipeline = new CipherPipeline()) {
+            pipeline.process(pipeline.ingestFiles(files)).subscribe(new Flow.Subscriber<DocumentResult>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(DocumentResult result) {
+                    System.out.println("\n" + result.getDocumentId());
+                    if (result.isFailed()) {
+                        System.out.println(ANSI_RED + "Error: " + result.getFailure().getMessage() + ANSI_RESET);
+                    } else {
+                        System.out.println("Key: " + ANSI_RED + result.getKey().getText() + ANSI_RESET
+                            + " (" + result.getLanguage() + ")");
+                        System.out.println("Decrypted text: " + result.getPlaintext());
+                    }
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    System.out.println(ANSI_RED + "Fatal error: " + throwable.getMessage() + ANSI_RESET);
+                    finished.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    finished.countDown();
+                }
+            });
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
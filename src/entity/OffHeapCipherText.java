@@ -0,0 +1,100 @@
+package entity;
+
+import util.Language;
+import util.OffHeapArena;
+import util.OffHeapArena.ByteSegment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Normalized (A-Z) ciphertext held off-heap, for inputs too large for a String.
+ * Letters are stored as 0-25; the text and everything allocated from its arena
+ * live until close().
+ */
+public class OffHeapCipherText implements AutoCloseable {
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private final OffHeapArena arena;
+    private final ByteSegment letters;
+    private final long length;
+    private final Language language;
+
+    private OffHeapCipherText(OffHeapArena arena, ByteSegment letters, long length, Language language) {
+        this.arena = arena;
+        this.letters = letters;
+        this.length = length;
+        this.language = language;
+    }
+
+    // Reads the file in chunks, keeping only letters (upper-cased) like the interactive input
+    public static OffHeapCipherText load(Path path, Language language) throws IOException {
+        if (path == null || language == null) {
+            throw new IllegalArgumentException("Path and Language cannot be null");
+        }
+        OffHeapArena arena = new OffHeapArena();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteSegment letters = arena.allocateBytes(channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            long length = 0;
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int c = buffer.get() & 0xFF;
+                    if (c >= 'a' && c <= 'z') {
+                        c -= 'a' - 'A';
+                    }
+                    if (c >= 'A' && c <= 'Z') {
+                        letters.set(length++, (byte) (c - 'A'));
+                    }
+                }
+                buffer.clear();
+            }
+            return new OffHeapCipherText(arena, letters, length, language);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public static OffHeapCipherText of(String text, Language language) {
+        if (text == null || language == null) {
+            throw new IllegalArgumentException("Text and Language cannot be null");
+        }
+        OffHeapArena arena = new OffHeapArena();
+        ByteSegment letters = arena.allocateBytes(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                arena.close();
+                throw new IllegalArgumentException("Text must contain only letters (A-Z)");
+            }
+            letters.set(i, (byte) (c - 'A'));
+        }
+        return new OffHeapCipherText(arena, letters, text.length(), language);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    // Letter at the given offset as 0-25
+    public int letterAt(long index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return letters.get(index);
+    }
+
+    public Language getLanguage() {
+        return language;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
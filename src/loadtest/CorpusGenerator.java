@@ -0,0 +1,152 @@
+package loadtest;
+
+import util.Language;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic Vigenère corpus. Plaintext is built from a per-language vocabulary of
+ * pseudo-words whose letters follow the language's frequency table and whose usage follows a
+ * Zipf law, so the texts have both the letter statistics and the repeated words that key
+ * length and key recovery rely on. The same seed always produces the same corpus.
+ */
+public class CorpusGenerator {
+    private static final int VOCABULARY_SIZE = 400;
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 9;
+    private static final int A = 26;
+
+    private final long seed;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static final class Sample {
+        private final Language language;
+        private final String key;
+        private final String plaintext;
+        private final String ciphertext;
+
+        Sample(Language language, String key, String plaintext, String ciphertext) {
+            this.language = language;
+            this.key = key;
+            this.plaintext = plaintext;
+            this.ciphertext = ciphertext;
+        }
+
+        public Language getLanguage() {
+            return language;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getPlaintext() {
+            return plaintext;
+        }
+
+        public String getCiphertext() {
+            return ciphertext;
+        }
+    }
+
+    // Cycles through every size x key length x language combination until count samples exist
+    public List<Sample> generate(int count, int[] textSizes, int[] keyLengths, Language[] languages) {
+        if (textSizes == null || keyLengths == null || languages == null) {
+            throw new IllegalArgumentException("Sizes, key lengths and languages cannot be null");
+        }
+        if (count < 1 || textSizes.length == 0 || keyLengths.length == 0 || languages.length == 0) {
+            throw new IllegalArgumentException("Corpus needs at least one sample, size, key length and language");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        String[][] vocabularies = new String[languages.length][];
+        for (int i = 0; i < languages.length; i++) {
+            vocabularies[i] = vocabulary(languages[i], random);
+        }
+        double[] zipf = zipfCumulative(VOCABULARY_SIZE);
+
+        List<Sample> samples = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            int size = textSizes[n % textSizes.length];
+            int keyLength = keyLengths[(n / textSizes.length) % keyLengths.length];
+            int languageIndex = (n / (textSizes.length * keyLengths.length)) % languages.length;
+
+            StringBuilder plaintext = new StringBuilder(size + MAX_WORD_LENGTH);
+            while (plaintext.length() < size) {
+                plaintext.append(vocabularies[languageIndex][pick(zipf, random.nextDouble())]);
+            }
+            plaintext.setLength(size);
+
+            StringBuilder key = new StringBuilder(keyLength);
+            for (int i = 0; i < keyLength; i++) {
+                key.append((char) ('A' + random.nextInt(A)));
+            }
+            samples.add(new Sample(languages[languageIndex], key.toString(), plaintext.toString(),
+                encrypt(plaintext, key)));
+        }
+        return samples;
+    }
+
+    private static String[] vocabulary(Language language, SplittableRandom random) {
+        double[] cumulative = new double[A];
+        double[] frequencies = language.getFrequencyVector();
+        double sum = 0;
+        for (int i = 0; i < A; i++) {
+            sum += frequencies[i];
+            cumulative[i] = sum;
+        }
+        String[] words = new String[VOCABULARY_SIZE];
+        for (int w = 0; w < VOCABULARY_SIZE; w++) {
+            int length = MIN_WORD_LENGTH + random.nextInt(MAX_WORD_LENGTH - MIN_WORD_LENGTH + 1);
+            StringBuilder word = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('A' + pick(cumulative, random.nextDouble() * sum)));
+            }
+            words[w] = word.toString();
+        }
+        return words;
+    }
+
+    // Normalized cumulative weights 1/rank
+    private static double[] zipfCumulative(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1.0 / rank;
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    // First index whose cumulative weight exceeds u
+    private static int pick(double[] cumulative, double u) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] > u) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    // Vigenère encryption formula: Ci = (Pi + Ki) mod 26
+    private static String encrypt(CharSequence plaintext, CharSequence key) {
+        StringBuilder ciphertext = new StringBuilder(plaintext.length());
+        for (int i = 0; i < plaintext.length(); i++) {
+            int shift = (plaintext.charAt(i) - 'A' + key.charAt(i % key.length()) - 'A') % A;
+            ciphertext.append((char) ('A' + shift));
+        }
+        return ciphertext.toString();
+    }
+}
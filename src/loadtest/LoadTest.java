@@ -0,0 +1,250 @@
+package loadtest;
+
+import entity.CipherText;
+import interfaces.IKey;
+import service.VigenereCipherBreaker;
+import util.Language;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offline end-to-end load test of VigenereCipherBreaker: analyzeKey + decrypt over a seeded
+ * synthetic corpus, either with N closed-loop workers or at a fixed request rate. The exit
+ * status is non-zero when a throughput, accuracy or p99 threshold is missed, so a release
+ * build can gate on it.
+ */
+public class LoadTest {
+    private static final long DEFAULT_SEED = 42;
+    private static final int DEFAULT_CORPUS_SIZE = 200;
+    private static final int[] DEFAULT_TEXT_SIZES = {1000, 5000, 20000};
+    private static final int[] DEFAULT_KEY_LENGTHS = {3, 5, 8, 12};
+    private static final int DEFAULT_REQUESTS = 1000;
+    private static final int DEFAULT_WARMUP_REQUESTS = 200;
+
+    private final VigenereCipherBreaker cipherBreaker;
+    private final List<CorpusGenerator.Sample> corpus;
+    private final int workers;
+    private final double ratePerSecond;
+
+    // ratePerSecond <= 0 runs closed-loop: each worker starts its next request as soon as one finishes
+    public LoadTest(VigenereCipherBreaker cipherBreaker, List<CorpusGenerator.Sample> corpus, int workers,
+                    double ratePerSecond) {
+        if (cipherBreaker == null || corpus == null || corpus.isEmpty()) {
+            throw new IllegalArgumentException("Breaker and a non-empty corpus are required");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        this.cipherBreaker = cipherBreaker;
+        this.corpus = corpus;
+        this.workers = workers;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public LoadTestReport run(int requests) throws InterruptedException {
+        if (requests < 1) {
+            throw new IllegalArgumentException("Request count must be positive");
+        }
+        long[] latencies = new long[requests];
+        AtomicLong correct = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long gcMillisBefore = gcMillis();
+        long gcCountBefore = gcCount();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "load-test-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            if (ratePerSecond > 0) {
+                runAtRate(pool, requests, start, latencies, correct, errors);
+            } else {
+                runClosedLoop(pool, requests, latencies, correct, errors);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new LoadTestReport(correct.get(), errors.get(), elapsed, latencies,
+            gcMillis() - gcMillisBefore, gcCount() - gcCountBefore);
+    }
+
+    private void runClosedLoop(ExecutorService pool, int requests, long[] latencies, AtomicLong correct,
+                               AtomicLong errors) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(workers);
+        for (int w = 0; w < workers; w++) {
+            pool.execute(() -> {
+                try {
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        long begin = System.nanoTime();
+                        record(index, begin, latencies, correct, errors);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    // Latency counts from the scheduled start, so a backlog is not hidden (no coordinated omission)
+    private void runAtRate(ExecutorService pool, int requests, long start, long[] latencies, AtomicLong correct,
+                           AtomicLong errors) throws InterruptedException {
+        double intervalNanos = 1e9 / ratePerSecond;
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            long scheduled = start + (long) (i * intervalNanos);
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int index = i;
+            pool.execute(() -> {
+                try {
+                    record(index, scheduled, latencies, correct, errors);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void record(int index, long begin, long[] latencies, AtomicLong correct, AtomicLong errors) {
+        CorpusGenerator.Sample sample = corpus.get(index % corpus.size());
+        try {
+            CipherText cipherText = new CipherText(sample.getCiphertext(), sample.getLanguage());
+            IKey key = cipherBreaker.analyzeKey(cipherText);
+            String plaintext = cipherBreaker.decrypt(cipherText, key);
+            if (key.getText().equals(sample.getKey()) && plaintext.equals(sample.getPlaintext())) {
+                correct.incrementAndGet();
+            }
+        } catch (Throwable e) {
+            // Errors too: the run must report the failure rather than lose a request
+            errors.incrementAndGet();
+        }
+        latencies[index] = System.nanoTime() - begin;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    // Returns the process exit status: 0 when every threshold holds, 1 otherwise
+    public static int launch(String[] args) throws InterruptedException {
+        long seed = DEFAULT_SEED;
+        int corpusSize = DEFAULT_CORPUS_SIZE;
+        int[] textSizes = DEFAULT_TEXT_SIZES;
+        int[] keyLengths = DEFAULT_KEY_LENGTHS;
+        Language[] languages = Language.values();
+        int workers = Runtime.getRuntime().availableProcessors();
+        double rate = 0;
+        int requests = DEFAULT_REQUESTS;
+        int warmup = DEFAULT_WARMUP_REQUESTS;
+        double minThroughput = 0;
+        double minAccuracy = 0;
+        double maxP99Millis = Double.MAX_VALUE;
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--corpus=")) {
+                corpusSize = Integer.parseInt(arg.substring("--corpus=".length()));
+            } else if (arg.startsWith("--sizes=")) {
+                textSizes = parseInts(arg.substring("--sizes=".length()));
+            } else if (arg.startsWith("--key-lengths=")) {
+                keyLengths = parseInts(arg.substring("--key-lengths=".length()));
+            } else if (arg.startsWith("--languages=")) {
+                languages = parseLanguages(arg.substring("--languages=".length()));
+            } else if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(arg.substring("--workers=".length()));
+            } else if (arg.startsWith("--rate=")) {
+                rate = Double.parseDouble(arg.substring("--rate=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--min-throughput=")) {
+                minThroughput = Double.parseDouble(arg.substring("--min-throughput=".length()));
+            } else if (arg.startsWith("--min-accuracy=")) {
+                minAccuracy = Double.parseDouble(arg.substring("--min-accuracy=".length()));
+            } else if (arg.startsWith("--max-p99-ms=")) {
+                maxP99Millis = Double.parseDouble(arg.substring("--max-p99-ms=".length()));
+            } else if (!arg.equals("--load-test")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        List<CorpusGenerator.Sample> corpus = new CorpusGenerator(seed).generate(corpusSize, textSizes, keyLengths, languages);
+        VigenereCipherBreaker cipherBreaker = new VigenereCipherBreaker();
+        System.out.println("Corpus: " + corpus.size() + " texts (seed " + seed + "), "
+            + (rate > 0 ? "rate " + rate + " req/s on " + workers + " workers" : workers + " closed-loop workers"));
+
+        if (warmup > 0) {
+            // Unmeasured pass so the JIT has compiled the hot paths before timing starts
+            new LoadTest(cipherBreaker, corpus, workers, 0).run(warmup);
+        }
+        LoadTestReport report = new LoadTest(cipherBreaker, corpus, workers, rate).run(requests);
+        System.out.println(report);
+
+        List<String> failures = new ArrayList<>();
+        if (report.getThroughput() < minThroughput) {
+            failures.add(String.format("throughput %.1f req/s < %.1f", report.getThroughput(), minThroughput));
+        }
+        if (report.getAccuracy() < minAccuracy) {
+            failures.add(String.format("accuracy %.4f < %.4f", report.getAccuracy(), minAccuracy));
+        }
+        if (report.getLatencyMillis(0.99) > maxP99Millis) {
+            failures.add(String.format("p99 %.2f ms > %.2f ms", report.getLatencyMillis(0.99), maxP99Millis));
+        }
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static Language[] parseLanguages(String list) {
+        String[] parts = list.split(",");
+        Language[] values = new Language[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Language.valueOf(parts[i].trim().toUpperCase());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+package loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Results of one measured load-test run. Latencies are end-to-end per request
+ * (analyzeKey + decrypt), measured from the intended start time in rate mode.
+ */
+public class LoadTestReport {
+    private final long requests;
+    private final long correct;
+    private final long errors;
+    private final long elapsedNanos;
+    private final long[] sortedLatencyNanos;
+    private final long gcMillis;
+    private final long gcCount;
+
+    LoadTestReport(long correct, long errors, long elapsedNanos, long[] latencyNanos, long gcMillis, long gcCount) {
+        this.requests = latencyNanos.length;
+        this.correct = correct;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencyNanos = latencyNanos.clone();
+        Arrays.sort(sortedLatencyNanos);
+        this.gcMillis = gcMillis;
+        this.gcCount = gcCount;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos;
+    }
+
+    // Share of requests whose recovered key equals the key used to encrypt
+    public double getAccuracy() {
+        return requests == 0 ? 0 : (double) correct / requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    // Nearest-rank percentile, e.g. 0.99 for p99
+    public double getLatencyMillis(double percentile) {
+        if (sortedLatencyNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sortedLatencyNanos.length);
+        return sortedLatencyNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    @Override
+    public String toString() {
+        double elapsedMillis = elapsedNanos / 1e6;
+        return String.format("Requests: %d in %.0f ms | Throughput: %.1f req/s%n", requests, elapsedMillis, getThroughput())
+            + String.format("Latency: p50 %.2f ms | p99 %.2f ms | p999 %.2f ms | max %.2f ms%n",
+                getLatencyMillis(0.50), getLatencyMillis(0.99), getLatencyMillis(0.999), getLatencyMillis(1.0))
+            + String.format("Accuracy: %.2f%% (%d correct, %d errors)%n", getAccuracy() * 100, correct, errors)
+            + String.format("GC: %d ms in %d collections (%.1f%% of wall time)",
+                gcMillis, gcCount, elapsedMillis == 0 ? 0 : gcMillis * 100 / elapsedMillis);
+    }
+}
@@ -0,0 +1,94 @@
+package pipeline;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads each source in fixed-size chunks on the executor, one document after another.
+ * A source that fails to open or read ends its document with a failed chunk and the
+ * remaining sources are still read.
+ * Reading starts with the first subscriber and blocks whenever the subscriber's buffer is
+ * full, so a slow pipeline pauses the reads instead of queueing the input in memory.
+ */
+class ChunkedIngestPublisher extends SubmissionPublisher<TextChunk> {
+    interface Source {
+        Reader open() throws IOException;
+    }
+
+    private final Map<String, Source> sources;
+    private final int chunkSize;
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    ChunkedIngestPublisher(Map<String, Source> sources, int chunkSize, Executor executor, int bufferCapacity) {
+        super(executor, bufferCapacity);
+        this.sources = new LinkedHashMap<>(sources);
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TextChunk> subscriber) {
+        super.subscribe(subscriber);
+        if (started.compareAndSet(false, true)) {
+            executor.execute(this::readAll);
+        }
+    }
+
+    private void readAll() {
+        try {
+            for (Map.Entry<String, Source> entry : sources.entrySet()) {
+                if (!read(entry.getKey(), entry.getValue())) {
+                    break;
+                }
+            }
+            close();
+        } catch (Throwable e) {
+            // Errors too: a publisher that is never closed leaves the subscribers waiting forever
+            closeExceptionally(e);
+        }
+    }
+
+    // Returns false once every subscriber has cancelled
+    private boolean read(String documentId, Source source) {
+        char[] buffer = new char[chunkSize];
+        long sequence = 0;
+        String pending = null;
+        try (Reader reader = source.open()) {
+            int filled;
+            while ((filled = fill(reader, buffer)) > 0) {
+                // Hold one chunk back so the final one can be marked as last
+                if (pending != null && !emit(new TextChunk(documentId, sequence++, pending, false))) {
+                    return false;
+                }
+                pending = new String(buffer, 0, filled);
+            }
+        } catch (IOException e) {
+            if (pending != null && !emit(new TextChunk(documentId, sequence++, pending, false))) {
+                return false;
+            }
+            return emit(TextChunk.failed(documentId, sequence, e));
+        }
+        return emit(new TextChunk(documentId, sequence, pending != null ? pending : "", true));
+    }
+
+    private static int fill(Reader reader, char[] buffer) throws IOException {
+        int filled = 0;
+        int read;
+        while (filled < buffer.length && (read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+        }
+        return filled;
+    }
+
+    private boolean emit(TextChunk chunk) {
+        submit(chunk);
+        return hasSubscribers();
+    }
+}
@@ -0,0 +1,173 @@
+package pipeline;
+
+import interfaces.ICipherText;
+import service.KasiskiAnalyzer;
+import service.KasiskiAnalyzer.KeyLengthProbability;
+import service.LanguageIdentifier.LanguageCandidate;
+import service.VigenereCipherBreaker;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The analysis steps App runs one after another, as Flow stages:
+ * ingest -> normalize -> assemble -> analyze -> recover key -> decrypt.
+ * Each stage is available on its own; process() wires them all together.
+ * All stages share one daemon thread pool that is shut down by close().
+ */
+public class CipherPipeline implements AutoCloseable {
+    private final KasiskiAnalyzer kasiskiAnalyzer;
+    private final VigenereCipherBreaker cipherBreaker;
+    private final PipelineOptions options;
+    private final ExecutorService executor;
+
+    public CipherPipeline() {
+        this(PipelineOptions.defaults());
+    }
+
+    public CipherPipeline(PipelineOptions options) {
+        this(new KasiskiAnalyzer(), new VigenereCipherBreaker(), options);
+    }
+
+    public CipherPipeline(KasiskiAnalyzer kasiskiAnalyzer, VigenereCipherBreaker cipherBreaker,
+                          PipelineOptions options) {
+        if (kasiskiAnalyzer == null || cipherBreaker == null || options == null) {
+            throw new IllegalArgumentException("Analyzer, breaker and options cannot be null");
+        }
+        this.kasiskiAnalyzer = kasiskiAnalyzer;
+        this.cipherBreaker = cipherBreaker;
+        this.options = options;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // One document per file, identified by its path
+    public Flow.Publisher<TextChunk> ingestFiles(List<Path> files) {
+        if (files == null) {
+            throw new IllegalArgumentException("Files cannot be null");
+        }
+        Map<String, ChunkedIngestPublisher.Source> sources = new LinkedHashMap<>();
+        for (Path file : files) {
+            sources.put(file.toString(), () -> Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+        return new ChunkedIngestPublisher(sources, options.getChunkSize(), executor, options.getBufferCapacity());
+    }
+
+    // Documents keyed by id, published in the map's iteration order
+    public Flow.Publisher<TextChunk> ingestTexts(Map<String, String> documents) {
+        if (documents == null) {
+            throw new IllegalArgumentException("Documents cannot be null");
+        }
+        Map<String, ChunkedIngestPublisher.Source> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, String> document : documents.entrySet()) {
+            String text = document.getValue();
+            sources.put(document.getKey(), () -> new StringReader(text));
+        }
+        return new ChunkedIngestPublisher(sources, options.getChunkSize(), executor, options.getBufferCapacity());
+    }
+
+    // Upper-cases letters and drops everything else, like the interactive input
+    public Flow.Processor<TextChunk, TextChunk> normalize() {
+        return new TransformProcessor<>(chunk -> chunk.withText(normalize(chunk.getText())),
+            options.getNormalizeParallelism(), executor, options.getBufferCapacity());
+    }
+
+    public Flow.Processor<TextChunk, DocumentResult> assemble() {
+        return new DocumentAssembler(executor, options.getBufferCapacity());
+    }
+
+    public Flow.Processor<DocumentResult, DocumentResult> analyze() {
+        return stage(options.getAnalyzeParallelism(), document -> {
+            List<KeyLengthProbability> lengths = kasiskiAnalyzer.findPossibleKeyLengths(document.getCipherText());
+            if (lengths.isEmpty()) {
+                throw new IllegalStateException("No possible key lengths found");
+            }
+            return document.withKeyLengths(lengths);
+        });
+    }
+
+    // Uses the best ranked length and picks the plaintext language along with the key
+    public Flow.Processor<DocumentResult, DocumentResult> recoverKey() {
+        return stage(options.getRecoverParallelism(), document -> {
+            ICipherText cipherText = document.getCipherText();
+            cipherText.setExpectedKeyLength(document.getKeyLengths().get(0).getLength());
+            List<LanguageCandidate> candidates = cipherBreaker.identifyLanguages(cipherText);
+            if (candidates.isEmpty()) {
+                throw new IllegalStateException("Failed to find a valid key");
+            }
+            LanguageCandidate best = candidates.get(0);
+            return document.withKey(best.getKey(), best.getLanguage());
+        });
+    }
+
+    public Flow.Processor<DocumentResult, DocumentResult> decrypt() {
+        return stage(options.getDecryptParallelism(),
+            document -> document.withPlaintext(cipherBreaker.decrypt(document.getCipherText(), document.getKey())));
+    }
+
+    // Connects every stage behind the source; results come out in input order
+    public Flow.Publisher<DocumentResult> process(Flow.Publisher<TextChunk> source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null");
+        }
+        Flow.Processor<TextChunk, TextChunk> normalizer = normalize();
+        Flow.Processor<TextChunk, DocumentResult> assembler = assemble();
+        Flow.Processor<DocumentResult, DocumentResult> analyzer = analyze();
+        Flow.Processor<DocumentResult, DocumentResult> keyRecovery = recoverKey();
+        Flow.Processor<DocumentResult, DocumentResult> decryptor = decrypt();
+        source.subscribe(normalizer);
+        normalizer.subscribe(assembler);
+        assembler.subscribe(analyzer);
+        analyzer.subscribe(keyRecovery);
+        keyRecovery.subscribe(decryptor);
+        return decryptor;
+    }
+
+    // Failures are recorded on the document instead of ending the stream
+    private Flow.Processor<DocumentResult, DocumentResult> stage(int parallelism,
+                                                                 Function<DocumentResult, DocumentResult> step) {
+        return new TransformProcessor<>(document -> {
+            if (document.isFailed()) {
+                return document;
+            }
+            try {
+                return step.apply(document);
+            } catch (RuntimeException e) {
+                return document.failed(e);
+            }
+        }, parallelism, executor, options.getBufferCapacity());
+    }
+
+    private static String normalize(String text) {
+        StringBuilder letters = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c >= 'A' && c <= 'Z') {
+                letters.append(c);
+            }
+        }
+        return letters.toString();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package pipeline;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Joins the normalized chunks of each document, which arrive in order, into one
+ * DocumentResult. Key length analysis needs the whole text, so this is the one point
+ * where a complete document is held in memory.
+ */
+class DocumentAssembler extends StageProcessor<TextChunk, DocumentResult> {
+    private String documentId;
+    private StringBuilder text;
+    private long nextSequence;
+
+    DocumentAssembler(Executor executor, int bufferCapacity) {
+        super(executor, bufferCapacity, bufferCapacity);
+    }
+
+    @Override
+    public void onNext(TextChunk chunk) {
+        if (text == null) {
+            documentId = chunk.getDocumentId();
+            text = new StringBuilder();
+            nextSequence = 0;
+        }
+        if (!chunk.getDocumentId().equals(documentId) || chunk.getSequence() != nextSequence) {
+            fail(new IllegalStateException("Chunk " + chunk.getSequence() + " of " + chunk.getDocumentId()
+                + " arrived out of order"));
+            return;
+        }
+        text.append(chunk.getText());
+        nextSequence++;
+        if (chunk.isLast()) {
+            DocumentResult document = DocumentResult.of(documentId, text.toString());
+            if (chunk.getFailure() != null) {
+                document = document.failed(chunk.getFailure());
+            }
+            text = null;
+            if (!publish(document)) {
+                return;
+            }
+        }
+        request(1);
+    }
+
+    @Override
+    public void onComplete() {
+        if (text != null) {
+            closeExceptionally(new IllegalStateException("Input ended inside document " + documentId));
+            return;
+        }
+        close();
+    }
+}
@@ -0,0 +1,93 @@
+package pipeline;
+
+import entity.CipherText;
+import interfaces.ICipherText;
+import interfaces.IKey;
+import service.KasiskiAnalyzer.KeyLengthProbability;
+import util.Language;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One assembled document and whatever the stages after assembly have found so far.
+ * Stages return a copy with their part filled in; a failed document passes through
+ * the remaining stages untouched so one bad input does not end the stream.
+ */
+public final class DocumentResult {
+    private final String documentId;
+    private final ICipherText cipherText;
+    private final List<KeyLengthProbability> keyLengths;
+    private final IKey key;
+    private final Language language;
+    private final String plaintext;
+    private final Throwable failure;
+
+    private DocumentResult(String documentId, ICipherText cipherText, List<KeyLengthProbability> keyLengths,
+                           IKey key, Language language, String plaintext, Throwable failure) {
+        this.documentId = documentId;
+        this.cipherText = cipherText;
+        this.keyLengths = keyLengths;
+        this.key = key;
+        this.language = language;
+        this.plaintext = plaintext;
+        this.failure = failure;
+    }
+
+    static DocumentResult of(String documentId, String normalizedText) {
+        // Language is only known after key recovery; English is the placeholder App uses too
+        return new DocumentResult(documentId, new CipherText(normalizedText, Language.ENGLISH),
+            Collections.<KeyLengthProbability>emptyList(), null, null, null, null);
+    }
+
+    DocumentResult withKeyLengths(List<KeyLengthProbability> lengths) {
+        return new DocumentResult(documentId, cipherText, Collections.unmodifiableList(lengths), key, language,
+            plaintext, failure);
+    }
+
+    DocumentResult withKey(IKey recoveredKey, Language detectedLanguage) {
+        return new DocumentResult(documentId, cipherText, keyLengths, recoveredKey, detectedLanguage, plaintext,
+            failure);
+    }
+
+    DocumentResult withPlaintext(String decrypted) {
+        return new DocumentResult(documentId, cipherText, keyLengths, key, language, decrypted, failure);
+    }
+
+    DocumentResult failed(Throwable error) {
+        return new DocumentResult(documentId, cipherText, keyLengths, key, language, plaintext, error);
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public ICipherText getCipherText() {
+        return cipherText;
+    }
+
+    // Ranked key lengths, best first; empty before the analysis stage
+    public List<KeyLengthProbability> getKeyLengths() {
+        return keyLengths;
+    }
+
+    public IKey getKey() {
+        return key;
+    }
+
+    public Language getLanguage() {
+        return language;
+    }
+
+    public String getPlaintext() {
+        return plaintext;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,66 @@
+package pipeline;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Chunk size, per-stage buffer capacity and per-stage parallelism for a CipherPipeline.
+ * Every stage holds at most bufferCapacity items for its subscriber plus parallelism items
+ * in flight, so memory stays bounded no matter how slow the final subscriber is.
+ */
+public final class PipelineOptions {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+    private final int bufferCapacity;
+    private final int normalizeParallelism;
+    private final int analyzeParallelism;
+    private final int recoverParallelism;
+    private final int decryptParallelism;
+
+    public PipelineOptions(int chunkSize, int bufferCapacity, int normalizeParallelism, int analyzeParallelism,
+                           int recoverParallelism, int decryptParallelism) {
+        if (chunkSize < 1 || bufferCapacity < 1) {
+            throw new IllegalArgumentException("Chunk size and buffer capacity must be positive");
+        }
+        if (normalizeParallelism < 1 || analyzeParallelism < 1 || recoverParallelism < 1 || decryptParallelism < 1) {
+            throw new IllegalArgumentException("Stage parallelism must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.bufferCapacity = bufferCapacity;
+        this.normalizeParallelism = normalizeParallelism;
+        this.analyzeParallelism = analyzeParallelism;
+        this.recoverParallelism = recoverParallelism;
+        this.decryptParallelism = decryptParallelism;
+    }
+
+    public static PipelineOptions defaults() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new PipelineOptions(DEFAULT_CHUNK_SIZE, Flow.defaultBufferSize(), cores, cores, cores, cores);
+    }
+
+    // Characters read per ingest chunk
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // Items a stage buffers for each subscriber before its producer blocks
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public int getNormalizeParallelism() {
+        return normalizeParallelism;
+    }
+
+    public int getAnalyzeParallelism() {
+        return analyzeParallelism;
+    }
+
+    public int getRecoverParallelism() {
+        return recoverParallelism;
+    }
+
+    public int getDecryptParallelism() {
+        return decryptParallelism;
+    }
+}
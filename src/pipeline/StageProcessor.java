@@ -0,0 +1,84 @@
+package pipeline;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Common plumbing for the pipeline processors. Nothing is requested from upstream until
+ * a subscriber is attached downstream, so stages can be wired in any order without
+ * dropping items. publish() blocks while the downstream buffer is full, which is what
+ * throttles the stages above a slow subscriber.
+ */
+abstract class StageProcessor<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+    private final Object lock = new Object();
+    private final long initialDemand;
+    private Flow.Subscription upstream;
+    private boolean started;
+
+    StageProcessor(Executor executor, int bufferCapacity, long initialDemand) {
+        super(executor, bufferCapacity);
+        this.initialDemand = initialDemand;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        super.subscribe(subscriber);
+        start();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (lock) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        if (hasSubscribers()) {
+            start();
+        }
+    }
+
+    private void start() {
+        Flow.Subscription subscription;
+        synchronized (lock) {
+            if (started || upstream == null) {
+                return;
+            }
+            started = true;
+            subscription = upstream;
+        }
+        subscription.request(initialDemand);
+    }
+
+    protected final void request(long n) {
+        upstream.request(n);
+    }
+
+    // Returns false once every downstream subscriber has cancelled; upstream is cancelled too
+    protected final boolean publish(R item) {
+        try {
+            submit(item);
+        } catch (IllegalStateException e) {
+            return false;  // closed by a failure on another worker
+        }
+        if (!hasSubscribers()) {
+            upstream.cancel();
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    protected final void fail(Throwable error) {
+        upstream.cancel();
+        closeExceptionally(error);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+}
@@ -0,0 +1,57 @@
+package pipeline;
+
+/**
+ * A slice of one input document as it moves through ingest and normalization.
+ * Chunks of a document are numbered from 0; the final one has last set. A document
+ * that could not be read ends with a last chunk carrying the failure.
+ */
+public final class TextChunk {
+    private final String documentId;
+    private final long sequence;
+    private final String text;
+    private final boolean last;
+    private final Exception failure;
+
+    public TextChunk(String documentId, long sequence, String text, boolean last) {
+        this(documentId, sequence, text, last, null);
+    }
+
+    private TextChunk(String documentId, long sequence, String text, boolean last, Exception failure) {
+        if (documentId == null || text == null) {
+            throw new IllegalArgumentException("Document id and text cannot be null");
+        }
+        this.documentId = documentId;
+        this.sequence = sequence;
+        this.text = text;
+        this.last = last;
+        this.failure = failure;
+    }
+
+    static TextChunk failed(String documentId, long sequence, Exception failure) {
+        return new TextChunk(documentId, sequence, "", true, failure);
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    TextChunk withText(String newText) {
+        return new TextChunk(documentId, sequence, newText, last, failure);
+    }
+}
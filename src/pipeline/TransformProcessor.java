@@ -0,0 +1,96 @@
+package pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * One-to-one stage that applies a function to up to parallelism items at a time on the
+ * worker executor. Results are published in arrival order; a finished item waits in the
+ * reorder buffer until everything before it has been published, and upstream demand is only
+ * renewed as items leave, so at most parallelism items are ever held by the stage.
+ */
+class TransformProcessor<T, R> extends StageProcessor<T, R> {
+    private final Function<? super T, ? extends R> transform;
+    private final Executor workers;
+
+    private final Map<Long, R> finished = new HashMap<>();
+    private long received;      // onNext calls are serialized by the Flow contract
+    private long published;     // guarded by finished
+    private long expected = -1; // total item count once upstream completes, guarded by finished
+    private Throwable upstreamError;
+    private volatile boolean failed;
+
+    TransformProcessor(Function<? super T, ? extends R> transform, int parallelism, Executor executor,
+                       int bufferCapacity) {
+        super(executor, bufferCapacity, parallelism);
+        this.transform = transform;
+        this.workers = executor;
+    }
+
+    @Override
+    public void onNext(T item) {
+        long sequence = received++;
+        workers.execute(() -> {
+            if (failed) {
+                return;
+            }
+            R result;
+            try {
+                result = transform.apply(item);
+            } catch (Throwable e) {
+                // Errors too: a sequence number that is never published would stall the reorder buffer
+                failed = true;
+                fail(e);
+                return;
+            }
+            drain(sequence, result);
+        });
+    }
+
+    private void drain(long sequence, R result) {
+        synchronized (finished) {
+            finished.put(sequence, result);
+            R next;
+            while ((next = finished.remove(published)) != null) {
+                published++;
+                if (failed || !publish(next)) {
+                    finished.clear();
+                    return;
+                }
+                request(1);
+            }
+            finishIfDrained();
+        }
+    }
+
+    // Items already in flight are still published before the completion or error signal
+    @Override
+    public void onComplete() {
+        synchronized (finished) {
+            expected = received;
+            finishIfDrained();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (finished) {
+            expected = received;
+            upstreamError = throwable;
+            finishIfDrained();
+        }
+    }
+
+    private void finishIfDrained() {
+        if (published != expected) {
+            return;
+        }
+        if (upstreamError != null) {
+            closeExceptionally(upstreamError);
+        } else {
+            close();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entity.CipherText;
+import entity.Key;
+import interfaces.ICipherText;
+import interfaces.IKey;
+import service.AnalysisContext;
+import service.AnalysisTimeoutException;
+import service.KasiskiAnalyzer;
+import service.KasiskiAnalyzer.KeyLengthProbability;
+import service.KeyLengthRanking;
+import service.VigenereCipherBreaker;
+import util.CancellationToken;
+import util.Json;
+import util.Language;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running local HTTP/JSON front end for the analyzers.
+ * Keeps one warm KasiskiAnalyzer / VigenereCipherBreaker pair for all requests.
+ */
+public class AnalysisServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_CONCURRENT = 16;
+    public static final int DEFAULT_MAX_BODY_BYTES = 1 << 20;  // 1 MiB
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    private static final long DEADLINE_GRACE_MILLIS = 250;  // Time allowed to return a partial result after the deadline
+
+    private final KasiskiAnalyzer kasiskiAnalyzer = new KasiskiAnalyzer();
+    private final VigenereCipherBreaker cipherBreaker = new VigenereCipherBreaker();
+
+    private final int port;
+    private final int maxBodyBytes;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private HttpServer httpServer;
+
+    public AnalysisServer(int port, int maxConcurrent, int maxBodyBytes, long timeoutMillis) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port must be between 0 and 65535");
+        }
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Max concurrent requests must be at least 1");
+        }
+        if (maxBodyBytes < 1) {
+            throw new IllegalArgumentException("Max body size must be positive");
+        }
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.port = port;
+        this.maxBodyBytes = maxBodyBytes;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConcurrent);
+        this.executor = createExecutor();
+    }
+
+    public synchronized void start() throws IOException {
+        if (httpServer != null) {
+            throw new IllegalStateException("Server is already running");
+        }
+        // Only bind to loopback: this is a local service for other tools on the same host
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/health", exchange -> {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "ok");
+            body.put("availablePermits", permits.availablePermits());
+            sendJson(exchange, 200, body);
+        });
+        httpServer.createContext("/key-lengths", exchange -> handle(exchange, this::keyLengths));
+        httpServer.createContext("/analyze-key", exchange -> handle(exchange, this::analyzeKey));
+        httpServer.createContext("/decrypt", exchange -> handle(exchange, this::decrypt));
+        httpServer.start();
+    }
+
+    public synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        HttpServer server = httpServer;
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    private interface Operation {
+        Map<String, Object> apply(Map<String, Object> request, AnalysisContext context);
+    }
+
+    private void handle(HttpExchange exchange, Operation operation) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (contentLength != null) {
+                try {
+                    if (Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+                        sendError(exchange, 413, "Request body exceeds " + maxBodyBytes + " bytes");
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    sendError(exchange, 400, "Invalid Content-Length header");
+                    return;
+                }
+            }
+
+            // Taken before the body is read so slow or concurrent uploads are bounded too
+            if (!permits.tryAcquire()) {
+                sendError(exchange, 503, "Server is busy, try again later");
+                return;
+            }
+            boolean handedOff = false;
+            try {
+                byte[] body = readBody(exchange.getRequestBody());
+                if (body == null) {
+                    sendError(exchange, 413, "Request body exceeds " + maxBodyBytes + " bytes");
+                    return;
+                }
+
+                Map<String, Object> request;
+                try {
+                    request = Json.parseObject(new String(body, StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, "Invalid JSON: " + e.getMessage());
+                    return;
+                }
+
+                // The analysis checks the deadline itself and stops early; the permit is held until it
+                // actually finishes so abandoned work still counts against the concurrency bound
+                CancellationToken token = new CancellationToken();
+                AnalysisContext context = AnalysisContext.withTimeout(timeoutMillis, token);
+                Future<Map<String, Object>> result;
+                try {
+                    result = executor.submit(() -> {
+                        try {
+                            return operation.apply(request, context);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    handedOff = true;
+                } catch (RejectedExecutionException e) {
+                    sendError(exchange, 503, "Server is shutting down");
+                    return;
+                }
+
+                try {
+                    sendJson(exchange, 200, result.get(timeoutMillis + DEADLINE_GRACE_MILLIS, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    token.cancel();
+                    result.cancel(true);
+                    sendError(exchange, 504, "Analysis exceeded the " + timeoutMillis + " ms deadline");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof AnalysisTimeoutException) {
+                        sendError(exchange, 504, cause.getMessage());
+                    } else if (cause instanceof IllegalArgumentException) {
+                        sendError(exchange, 400, cause.getMessage());
+                    } else if (cause instanceof IllegalStateException) {
+                        sendError(exchange, 422, cause.getMessage());
+                    } else {
+                        sendError(exchange, 500, "Unexpected error: " + cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    token.cancel();
+                    result.cancel(true);
+                    sendError(exchange, 503, "Request interrupted");
+                }
+            } finally {
+                if (!handedOff) {
+                    permits.release();
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> keyLengths(Map<String, Object> request, AnalysisContext context) {
+        ICipherText cipherText = readCipherText(request);
+        KeyLengthRanking ranking = kasiskiAnalyzer.rankKeyLengths(cipherText, context);
+        List<Map<String, Object>> candidates = new ArrayList<>();
+        for (KeyLengthProbability prob : ranking.getCandidates()) {
+            candidates.add(toJson(prob));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("keyLengths", candidates);
+        response.put("complete", ranking.isComplete());
+        return response;
+    }
+
+    private Map<String, Object> analyzeKey(Map<String, Object> request, AnalysisContext context) {
+        ICipherText cipherText = readCipherText(request);
+        Object keyLength = request.get("keyLength");
+        if (keyLength != null) {
+            cipherText.setExpectedKeyLength(readInt(keyLength, "keyLength"));
+        }
+        IKey key = cipherBreaker.analyzeKey(cipherText, context);
+        if (key == null) {
+            throw new IllegalStateException("Failed to find a valid key.");
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("key", key.getText());
+        if (Boolean.TRUE.equals(request.get("decrypt"))) {
+            response.put("plaintext", cipherBreaker.decrypt(cipherText, key));
+        }
+        return response;
+    }
+
+    private Map<String, Object> decrypt(Map<String, Object> request, AnalysisContext context) {
+        ICipherText cipherText = readCipherText(request);
+        String keyText = normalize(readString(request, "key"), "key");
+        IKey key = new Key(keyText, cipherText.getLanguage());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("plaintext", cipherBreaker.decrypt(cipherText, key));
+        return response;
+    }
+
+    private static ICipherText readCipherText(Map<String, Object> request) {
+        String text = normalize(readString(request, "text"), "text");
+        Language language = Language.ENGLISH;
+        Object languageName = request.get("language");
+        if (languageName != null) {
+            try {
+                language = Language.valueOf(languageName.toString().trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported language: " + languageName);
+            }
+        }
+        return new CipherText(text, language);
+    }
+
+    private static String normalize(String value, String field) {
+        String normalized = value.replaceAll("\\s+", "").toUpperCase();
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Field '" + field + "' cannot be empty");
+        }
+        if (!normalized.matches("[A-Z]+")) {
+            throw new IllegalArgumentException("Field '" + field + "' contains invalid characters, only letters (A-Z) are allowed");
+        }
+        return normalized;
+    }
+
+    private static String readString(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Field '" + field + "' must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int readInt(Object value, String field) {
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Field '" + field + "' must be a number");
+        }
+        double d = (Double) value;
+        if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field '" + field + "' must be an integer");
+        }
+        return (int) d;
+    }
+
+    private static Map<String, Object> toJson(KeyLengthProbability prob) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("length", prob.getLength());
+        json.put("probability", prob.getProbability());
+        json.put("patternCount", prob.getPatternCount());
+        json.put("indexOfCoincidence", prob.getIndexOfCoincidence());
+        json.put("finalScore", prob.getFinalScore());
+        return json;
+    }
+
+    // Returns null when the body is larger than the configured limit
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBodyBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        sendJson(exchange, status, body);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Virtual threads when the runtime has them (Java 21+), otherwise a daemon cached pool
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "analysis-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static void launch(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+        int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+        long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--max-concurrent=")) {
+                maxConcurrent = Integer.parseInt(arg.substring("--max-concurrent=".length()));
+            } else if (arg.startsWith("--max-body-bytes=")) {
+                maxBodyBytes = Integer.parseInt(arg.substring("--max-body-bytes=".length()));
+            } else if (arg.startsWith("--timeout-ms=")) {
+                timeoutMillis = Long.parseLong(arg.substring("--timeout-ms=".length()));
+            } else if (!arg.equals("--server")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        AnalysisServer server = new AnalysisServer(port, maxConcurrent, maxBodyBytes, timeoutMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Analysis server listening on http://localhost:" + server.getPort());
+    }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import util.CancellationToken;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline and cancellation token checked cooperatively by the analysis loops.
+ */
+public final class AnalysisContext {
+    private static final AnalysisContext UNBOUNDED = new AnalysisContext(Long.MAX_VALUE, new CancellationToken(), false);
+
+    private final long deadlineNanos;
+    private final CancellationToken token;
+    private final boolean hasDeadline;
+
+    private AnalysisContext(long deadlineNanos, CancellationToken token, boolean hasDeadline) {
+        this.deadlineNanos = deadlineNanos;
+        this.token = token;
+        this.hasDeadline = hasDeadline;
+    }
+
+    public static AnalysisContext unbounded() {
+        return UNBOUNDED;
+    }
+
+    public static AnalysisContext withTimeout(long timeoutMillis, CancellationToken token) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        if (token == null) {
+            throw new IllegalArgumentException("Cancellation token cannot be null");
+        }
+        return new AnalysisContext(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), token, true);
+    }
+
+    public static AnalysisContext withToken(CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException("Cancellation token cannot be null");
+        }
+        return new AnalysisContext(Long.MAX_VALUE, token, false);
+    }
+
+    // Context for an earlier phase that leaves the given share of the remaining time to the phases after it
+    public AnalysisContext reserve(double share) {
+        if (share < 0 || share >= 1) {
+            throw new IllegalArgumentException("Reserved share must be in [0, 1)");
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        if (!hasDeadline || remaining <= 0) {
+            return this;
+        }
+        return new AnalysisContext(deadlineNanos - (long) (remaining * share), token, true);
+    }
+
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public void checkCancelled() {
+        if (token.isCancelled()) {
+            throw new CancellationException("Analysis was cancelled");
+        }
+    }
+
+    // Returns true when the caller should stop and return what it has so far
+    public boolean shouldStop() {
+        checkCancelled();
+        return isExpired();
+    }
+}
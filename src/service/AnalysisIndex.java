@@ -0,0 +1,303 @@
+package service;
+
+import entity.CipherText;
+import interfaces.ICipherText;
+import service.KasiskiAnalyzer.KeyLengthProbability;
+import util.Language;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Persisted analysis of one ciphertext: the normalized text, repeat-distance histogram,
+ * column histograms for every candidate key length and the ranked key lengths.
+ * The file is memory-mapped on open and each section is decoded only when first asked for.
+ *
+ * Layout (big-endian):
+ *   header      magic "KSKI", version, flags, text length, key length range, section sizes,
+ *               language, CRC32 of header + metadata, CRC32 of the text
+ *   ranking     (int length, double probability, int patternCount, double ioc) per candidate
+ *   histograms  26 ints per column, for key lengths MIN..MAX
+ *   distances   (int distance, int frequency) sorted by distance
+ *   text        one byte per letter A-Z
+ */
+public class AnalysisIndex {
+    private static final int MAGIC = 0x4B534B49;  // "KSKI"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int CHECKSUM_OFFSET = 32;
+    private static final int RANKING_ENTRY_SIZE = 24;
+    private static final int DISTANCE_ENTRY_SIZE = 8;
+    private static final int FLAG_COMPLETE = 1;
+    private static final int A = ColumnHistograms.ALPHABET_SIZE;
+    private static final int WRITE_CHUNK_SIZE = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private final int textLength;
+    private final int minKeyLength;
+    private final int maxKeyLength;
+    private final int rankingCount;
+    private final int distanceCount;
+    private final boolean complete;
+    private final Language language;
+    private final long textChecksum;
+    private final int histogramOffset;
+    private final int distanceOffset;
+    private final int textOffset;
+
+    private KeyLengthRanking ranking;
+    private final ColumnHistograms[] histograms;
+    private Map<Integer, Integer> distanceFrequencies;
+    private ICipherText cipherText;
+
+    private AnalysisIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IllegalStateException("Analysis index is truncated");
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not an analysis index file");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported analysis index version " + version + " (expected " + VERSION + ")");
+        }
+        int flags = buffer.getShort(6);
+        this.textLength = buffer.getInt(8);
+        this.minKeyLength = buffer.getInt(12);
+        this.maxKeyLength = buffer.getInt(16);
+        this.rankingCount = buffer.getInt(20);
+        this.distanceCount = buffer.getInt(24);
+        int languageOrdinal = buffer.getInt(28);
+        long metadataChecksum = buffer.getLong(CHECKSUM_OFFSET);
+        this.textChecksum = buffer.getLong(40);
+
+        if (textLength < 0 || minKeyLength < 1 || maxKeyLength < minKeyLength || rankingCount < 0 || distanceCount < 0) {
+            throw new IllegalStateException("Analysis index header is corrupt");
+        }
+        if (languageOrdinal < 0 || languageOrdinal >= Language.values().length) {
+            throw new IllegalStateException("Analysis index refers to an unknown language");
+        }
+        this.language = Language.values()[languageOrdinal];
+        this.complete = (flags & FLAG_COMPLETE) != 0;
+
+        long histogramInts = 0;
+        for (int length = minKeyLength; length <= maxKeyLength; length++) {
+            histogramInts += (long) length * A;
+        }
+        long histogramStart = HEADER_SIZE + (long) rankingCount * RANKING_ENTRY_SIZE;
+        long distanceStart = histogramStart + histogramInts * 4;
+        long textStart = distanceStart + (long) distanceCount * DISTANCE_ENTRY_SIZE;
+        if (textStart + textLength != buffer.capacity()) {
+            throw new IllegalStateException("Analysis index size does not match its header");
+        }
+        this.histogramOffset = (int) histogramStart;
+        this.distanceOffset = (int) distanceStart;
+        this.textOffset = (int) textStart;
+
+        // Metadata is small and verified up front; the text is verified when it is first read
+        if (metadataChecksum != metadataChecksum(buffer, textOffset)) {
+            throw new IllegalStateException("Analysis index checksum mismatch");
+        }
+        this.histograms = new ColumnHistograms[maxKeyLength - minKeyLength + 1];
+    }
+
+    public static AnalysisIndex open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Analysis index is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AnalysisIndex(mapped);
+        }
+    }
+
+    // Runs the full analysis once and persists everything needed to skip it next time
+    public static AnalysisIndex create(Path path, ICipherText cipherText, KasiskiAnalyzer analyzer) throws IOException {
+        if (path == null || cipherText == null || analyzer == null) {
+            throw new IllegalArgumentException("Path, CipherText and KasiskiAnalyzer cannot be null");
+        }
+        String text = cipherText.getText();
+        int minKeyLength = KasiskiAnalyzer.MIN_KEY_LENGTH;
+        int maxKeyLength = KasiskiAnalyzer.MAX_KEY_LENGTH;
+
+        ColumnHistograms[] histograms = new ColumnHistograms[maxKeyLength - minKeyLength + 1];
+        for (int length = minKeyLength; length <= maxKeyLength; length++) {
+            histograms[length - minKeyLength] = new ColumnHistograms(text, length);
+        }
+        AnalysisContext context = AnalysisContext.unbounded();
+        KasiskiAnalyzer.RepeatStatistics repeats = analyzer.collectRepeats(cipherText, context);
+        KeyLengthRanking ranking = analyzer.scoreKeyLengths(repeats, length -> histograms[length - minKeyLength], context);
+        List<Map.Entry<Integer, Integer>> distances = new ArrayList<>(new TreeMap<>(repeats.distanceFrequencies).entrySet());
+
+        // Sized in long so a huge distance table is rejected here instead of wrapping to a negative size
+        long histogramInts = 0;
+        for (ColumnHistograms columns : histograms) {
+            histogramInts += (long) columns.getKeyLength() * A;
+        }
+        long requiredSize = HEADER_SIZE + (long) ranking.getCandidates().size() * RANKING_ENTRY_SIZE
+            + histogramInts * 4 + (long) distances.size() * DISTANCE_ENTRY_SIZE;
+        if (requiredSize + text.length() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Text is too large for an analysis index (limit is 2 GB)");
+        }
+        int metadataSize = (int) requiredSize;
+
+        ByteBuffer metadata = ByteBuffer.allocate(metadataSize);
+        metadata.putInt(MAGIC);
+        metadata.putShort(VERSION);
+        metadata.putShort((short) (ranking.isComplete() ? FLAG_COMPLETE : 0));
+        metadata.putInt(text.length());
+        metadata.putInt(minKeyLength);
+        metadata.putInt(maxKeyLength);
+        metadata.putInt(ranking.getCandidates().size());
+        metadata.putInt(distances.size());
+        metadata.putInt(cipherText.getLanguage().ordinal());
+        metadata.putLong(0);  // Checksums are filled in below
+        metadata.putLong(0);
+        for (KeyLengthProbability prob : ranking.getCandidates()) {
+            metadata.putInt(prob.getLength());
+            metadata.putDouble(prob.getProbability());
+            metadata.putInt(prob.getPatternCount());
+            metadata.putDouble(prob.getIndexOfCoincidence());
+        }
+        for (ColumnHistograms columns : histograms) {
+            for (int column = 0; column < columns.getKeyLength(); column++) {
+                for (int letter = 0; letter < A; letter++) {
+                    metadata.putInt(columns.getCount(column, letter));
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : distances) {
+            metadata.putInt(entry.getKey());
+            metadata.putInt(entry.getValue());
+        }
+
+        CRC32 textCrc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(metadataSize);
+            for (int start = 0; start < text.length(); start += WRITE_CHUNK_SIZE) {
+                byte[] chunk = text.substring(start, Math.min(text.length(), start + WRITE_CHUNK_SIZE))
+                    .getBytes(StandardCharsets.US_ASCII);
+                textCrc.update(chunk, 0, chunk.length);
+                ByteBuffer out = ByteBuffer.wrap(chunk);
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+
+            metadata.putLong(40, textCrc.getValue());
+            metadata.putLong(CHECKSUM_OFFSET, metadataChecksum(metadata, metadataSize));
+            metadata.rewind();
+            channel.position(0);
+            while (metadata.hasRemaining()) {
+                channel.write(metadata);
+            }
+            channel.force(true);
+        }
+        return open(path);
+    }
+
+    // CRC32 over the header (without the checksum fields) and all metadata sections
+    private static long metadataChecksum(ByteBuffer source, int end) {
+        ByteBuffer view = source.duplicate();
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[Math.max(CHECKSUM_OFFSET, end - HEADER_SIZE)];
+        view.position(0);
+        view.get(bytes, 0, CHECKSUM_OFFSET);
+        crc.update(bytes, 0, CHECKSUM_OFFSET);
+        view.position(HEADER_SIZE);
+        view.get(bytes, 0, end - HEADER_SIZE);
+        crc.update(bytes, 0, end - HEADER_SIZE);
+        return crc.getValue();
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    public Language getLanguage() {
+        return language;
+    }
+
+    public synchronized KeyLengthRanking getRanking() {
+        if (ranking == null) {
+            if (rankingCount == 0) {
+                throw new IllegalStateException("No possible key lengths stored in the index");
+            }
+            List<KeyLengthProbability> candidates = new ArrayList<>(rankingCount);
+            for (int i = 0; i < rankingCount; i++) {
+                int offset = HEADER_SIZE + i * RANKING_ENTRY_SIZE;
+                candidates.add(new KeyLengthProbability(buffer.getInt(offset), buffer.getDouble(offset + 4),
+                    buffer.getInt(offset + 12), buffer.getDouble(offset + 16)));
+            }
+            ranking = new KeyLengthRanking(candidates, complete);
+        }
+        return ranking;
+    }
+
+    // Stored histograms for lengths in the indexed range, otherwise rebuilt from the text
+    public synchronized ColumnHistograms getColumnHistograms(int keyLength) {
+        if (keyLength < 1) {
+            throw new IllegalArgumentException("Key length must be positive");
+        }
+        if (keyLength < minKeyLength || keyLength > maxKeyLength) {
+            return new ColumnHistograms(getCipherText().getText(), keyLength);
+        }
+        ColumnHistograms cached = histograms[keyLength - minKeyLength];
+        if (cached == null) {
+            int offset = histogramOffset;
+            for (int length = minKeyLength; length < keyLength; length++) {
+                offset += length * A * 4;
+            }
+            int[][] counts = new int[keyLength][A];
+            for (int column = 0; column < keyLength; column++) {
+                for (int letter = 0; letter < A; letter++) {
+                    counts[column][letter] = buffer.getInt(offset);
+                    offset += 4;
+                }
+            }
+            cached = new ColumnHistograms(counts);
+            histograms[keyLength - minKeyLength] = cached;
+        }
+        return cached;
+    }
+
+    public synchronized Map<Integer, Integer> getDistanceFrequencies() {
+        if (distanceFrequencies == null) {
+            Map<Integer, Integer> decoded = new TreeMap<>();
+            for (int i = 0; i < distanceCount; i++) {
+                int offset = distanceOffset + i * DISTANCE_ENTRY_SIZE;
+                decoded.put(buffer.getInt(offset), buffer.getInt(offset + 4));
+            }
+            distanceFrequencies = Collections.unmodifiableMap(decoded);
+        }
+        return distanceFrequencies;
+    }
+
+    public synchronized ICipherText getCipherText() {
+        if (cipherText == null) {
+            byte[] bytes = new byte[textLength];
+            ByteBuffer view = buffer.duplicate();
+            view.position(textOffset);
+            view.get(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+            if (crc.getValue() != textChecksum) {
+                throw new IllegalStateException("Analysis index text checksum mismatch");
+            }
+            cipherText = new CipherText(new String(bytes, StandardCharsets.US_ASCII), language);
+        }
+        return cipherText;
+    }
+}
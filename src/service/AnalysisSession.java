@@ -0,0 +1,219 @@
+package service;
+
+import interfaces.ICipherText;
+import interfaces.IKey;
+import service.KasiskiAnalyzer.KeyLengthProbability;
+import service.LanguageIdentifier.LanguageCandidate;
+import util.Language;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Interactive analysis of one ciphertext. The column histograms built while ranking key lengths
+ * are kept per length, together with the per-language shift scores computed from them, so
+ * switching to another length recovers its key without another pass over the text.
+ * Cached state is evicted least recently used first once it exceeds the byte budget, and the
+ * next-ranked lengths can be prepared on a background thread while the caller shows a result.
+ */
+public class AnalysisSession implements AutoCloseable {
+    public static final long DEFAULT_MAX_CACHED_BYTES = 4L * 1024 * 1024;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final ICipherText cipherText;
+    private final KasiskiAnalyzer kasiskiAnalyzer;
+    private final VigenereCipherBreaker cipherBreaker;
+    private final LanguageIdentifier languageIdentifier;
+    private final long maxCachedBytes;
+    private final ExecutorService background;
+
+    // Access-ordered, so iteration starts at the least recently used length; guarded by this
+    private final Map<Integer, LengthState> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private KeyLengthRanking ranking;
+
+    public AnalysisSession(ICipherText cipherText) {
+        this(cipherText, new KasiskiAnalyzer(), new VigenereCipherBreaker(), DEFAULT_MAX_CACHED_BYTES);
+    }
+
+    public AnalysisSession(ICipherText cipherText, KasiskiAnalyzer kasiskiAnalyzer,
+                           VigenereCipherBreaker cipherBreaker, long maxCachedBytes) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        if (kasiskiAnalyzer == null || cipherBreaker == null) {
+            throw new IllegalArgumentException("Analyzer and breaker cannot be null");
+        }
+        if (maxCachedBytes < 0) {
+            throw new IllegalArgumentException("Cache budget cannot be negative");
+        }
+        this.cipherText = cipherText;
+        this.kasiskiAnalyzer = kasiskiAnalyzer;
+        this.cipherBreaker = cipherBreaker;
+        this.languageIdentifier = new LanguageIdentifier();
+        this.maxCachedBytes = maxCachedBytes;
+        this.background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-session-precompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<KeyLengthProbability> findPossibleKeyLengths() {
+        return rankKeyLengths(AnalysisContext.unbounded()).getCandidates();
+    }
+
+    // Ranks once per session; the histograms built for the IoC scores stay in the cache
+    public KeyLengthRanking rankKeyLengths(AnalysisContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
+        synchronized (this) {
+            if (ranking != null) {
+                return ranking;
+            }
+        }
+        KasiskiAnalyzer.RepeatStatistics repeats = kasiskiAnalyzer.collectRepeats(cipherText, context);
+        KeyLengthRanking result = kasiskiAnalyzer.scoreKeyLengths(repeats, length -> state(length).histograms, context);
+        synchronized (this) {
+            // A partial ranking is not kept so a later call with more time can finish it
+            if (result.isComplete()) {
+                ranking = result;
+            }
+        }
+        return result;
+    }
+
+    // Prepares the next-ranked lengths after the best one in the background
+    public void precomputeAlternatives(int count) {
+        KeyLengthRanking current;
+        synchronized (this) {
+            current = ranking;
+        }
+        if (current == null) {
+            throw new IllegalStateException("Key lengths must be ranked before precomputing alternatives");
+        }
+        List<KeyLengthProbability> candidates = current.getCandidates();
+        for (int i = 1; i <= count && i < candidates.size(); i++) {
+            int keyLength = candidates.get(i).getLength();
+            background.execute(() -> {
+                try {
+                    state(keyLength).prepareShiftScores();
+                } catch (RuntimeException e) {
+                    // The foreground call for this length recomputes and reports the error
+                }
+            });
+        }
+    }
+
+    // Same result as VigenereCipherBreaker#identifyLanguages for this key length
+    public List<LanguageCandidate> identifyLanguages(int keyLength) {
+        if (keyLength < VigenereCipherBreaker.MIN_KEY_LENGTH || keyLength > cipherText.getText().length()) {
+            throw new IllegalArgumentException("Invalid key length: " + keyLength +
+                ". Must be between " + VigenereCipherBreaker.MIN_KEY_LENGTH + " and " + cipherText.getText().length());
+        }
+        LengthState state = state(keyLength);
+        state.prepareShiftScores();
+        return languageIdentifier.identify(state.histograms, Language.values(), state::shiftScores);
+    }
+
+    public String decrypt(IKey key) {
+        return cipherBreaker.decrypt(cipherText, key);
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized boolean isCached(int keyLength) {
+        return cache.containsKey(keyLength);
+    }
+
+    private LengthState state(int keyLength) {
+        synchronized (this) {
+            LengthState state = cache.get(keyLength);
+            if (state != null) {
+                return state;
+            }
+        }
+        // Built outside the lock; a concurrent duplicate is harmless and the first one wins
+        LengthState built = new LengthState(new ColumnHistograms(cipherText.getText(), keyLength));
+        synchronized (this) {
+            LengthState state = cache.get(keyLength);
+            if (state != null) {
+                return state;
+            }
+            cache.put(keyLength, built);
+            cachedBytes += built.bytes;
+            evict(keyLength);
+            return built;
+        }
+    }
+
+    private synchronized void grow(LengthState state, long bytes) {
+        // Only count the growth if the state was not evicted in the meantime
+        if (cache.get(state.histograms.getKeyLength()) == state) {
+            cachedBytes += bytes;
+            evict(state.histograms.getKeyLength());
+        }
+        state.bytes += bytes;
+    }
+
+    // Drops least recently used lengths until the budget holds, keeping the one just used
+    private void evict(int keep) {
+        Iterator<Map.Entry<Integer, LengthState>> entries = cache.entrySet().iterator();
+        while (cachedBytes > maxCachedBytes && entries.hasNext()) {
+            Map.Entry<Integer, LengthState> entry = entries.next();
+            if (entry.getKey() != keep) {
+                cachedBytes -= entry.getValue().bytes;
+                entries.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        background.shutdownNow();
+        synchronized (this) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    // Everything kept for one key length
+    private final class LengthState {
+        final ColumnHistograms histograms;
+        private final Map<Language, double[][]> shiftScores = new EnumMap<>(Language.class);
+        long bytes;  // guarded by the session
+
+        LengthState(ColumnHistograms histograms) {
+            this.histograms = histograms;
+            this.bytes = histograms.estimatedBytes();
+        }
+
+        // Computed once per length; a second caller waits for the first instead of repeating it
+        synchronized void prepareShiftScores() {
+            if (!shiftScores.isEmpty()) {
+                return;
+            }
+            long added = 0;
+            for (Language language : Language.values()) {
+                double[][] scores = ColumnScoring.shiftScores(histograms, language);
+                shiftScores.put(language, scores);
+                added += (long) scores.length * (ARRAY_HEADER_BYTES + ColumnHistograms.ALPHABET_SIZE * Double.BYTES)
+                    + ARRAY_HEADER_BYTES;
+            }
+            grow(this, added);
+        }
+
+        synchronized double[][] shiftScores(Language language) {
+            double[][] scores = shiftScores.get(language);
+            return scores != null ? scores : ColumnScoring.shiftScores(histograms, language);
+        }
+    }
+}
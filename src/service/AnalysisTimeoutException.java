@@ -0,0 +1,9 @@
+package service;
+
+public class AnalysisTimeoutException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public AnalysisTimeoutException(String message) {
+        super(message);
+    }
+}
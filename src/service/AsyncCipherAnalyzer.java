@@ -0,0 +1,59 @@
+package service;
+
+import interfaces.ICipherText;
+import interfaces.IKey;
+import util.CancellationToken;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * CompletableFuture front end for the blocking analyzers with per-call deadlines.
+ * Cancelling a returned future also cancels the underlying analysis.
+ */
+public class AsyncCipherAnalyzer {
+    private final KasiskiAnalyzer kasiskiAnalyzer;
+    private final VigenereCipherBreaker cipherBreaker;
+    private final Executor executor;
+
+    public AsyncCipherAnalyzer() {
+        this(new KasiskiAnalyzer(), new VigenereCipherBreaker(), ForkJoinPool.commonPool());
+    }
+
+    public AsyncCipherAnalyzer(KasiskiAnalyzer kasiskiAnalyzer, VigenereCipherBreaker cipherBreaker, Executor executor) {
+        if (kasiskiAnalyzer == null || cipherBreaker == null || executor == null) {
+            throw new IllegalArgumentException("Analyzer, breaker and executor cannot be null");
+        }
+        this.kasiskiAnalyzer = kasiskiAnalyzer;
+        this.cipherBreaker = cipherBreaker;
+        this.executor = executor;
+    }
+
+    // On timeout completes with the partial ranking scored so far (see KeyLengthRanking.isComplete)
+    public CompletableFuture<KeyLengthRanking> findPossibleKeyLengthsAsync(ICipherText cipherText, long timeoutMillis,
+                                                                          CancellationToken token) {
+        return submit(timeoutMillis, token, context -> kasiskiAnalyzer.rankKeyLengths(cipherText, context));
+    }
+
+    // Completes exceptionally with AnalysisTimeoutException if no key could be recovered in time
+    public CompletableFuture<IKey> analyzeKeyAsync(ICipherText cipherText, long timeoutMillis, CancellationToken token) {
+        return submit(timeoutMillis, token, context -> cipherBreaker.analyzeKey(cipherText, context));
+    }
+
+    private <T> CompletableFuture<T> submit(long timeoutMillis, CancellationToken token,
+                                            Function<AnalysisContext, T> task) {
+        CancellationToken effectiveToken = token != null ? token : new CancellationToken();
+        // Start the clock at submission so queueing time counts against the deadline
+        AnalysisContext context = AnalysisContext.withTimeout(timeoutMillis, effectiveToken);
+
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> task.apply(context), executor);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                effectiveToken.cancel();
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,129 @@
+package service;
+
+import entity.OffHeapCipherText;
+
+/**
+ * Letter counts of every key column (text positions i with i % keyLength == column),
+ * built in a single pass over the text so several scorers can share them.
+ */
+public class ColumnHistograms {
+    public static final int ALPHABET_SIZE = 26;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final int keyLength;
+    private final int[][] counts;
+    private final long[] columnLengths;
+
+    public ColumnHistograms(String text, int keyLength) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null");
+        }
+        if (keyLength < 1) {
+            throw new IllegalArgumentException("Key length must be positive");
+        }
+        this.keyLength = keyLength;
+        this.counts = new int[keyLength][ALPHABET_SIZE];
+        this.columnLengths = new long[keyLength];
+
+        // Letters are counted case-insensitively, as the frequency analysis always did
+        int column = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int letter = Character.toUpperCase(text.charAt(i)) - 'A';
+            if (letter < 0 || letter >= ALPHABET_SIZE) {
+                throw new IllegalArgumentException("Text must contain only letters (A-Z)");
+            }
+            counts[column][letter]++;
+            columnLengths[column]++;
+            if (++column == keyLength) {
+                column = 0;
+            }
+        }
+    }
+
+    // Rebuilds histograms from stored counts (see AnalysisIndex)
+    ColumnHistograms(int[][] counts) {
+        this.keyLength = counts.length;
+        this.counts = counts;
+        this.columnLengths = new long[keyLength];
+        for (int column = 0; column < keyLength; column++) {
+            if (counts[column].length != ALPHABET_SIZE) {
+                throw new IllegalArgumentException("Each column must have " + ALPHABET_SIZE + " counts");
+            }
+            for (int count : counts[column]) {
+                columnLengths[column] += count;
+            }
+        }
+    }
+
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    // Single pass over an off-heap text, which may be longer than Integer.MAX_VALUE
+    public static ColumnHistograms of(OffHeapCipherText text, int keyLength) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null");
+        }
+        if (keyLength < 1) {
+            throw new IllegalArgumentException("Key length must be positive");
+        }
+        long[][] wideCounts = new long[keyLength][ALPHABET_SIZE];
+        int column = 0;
+        for (long i = 0; i < text.length(); i++) {
+            wideCounts[column][text.letterAt(i)]++;
+            if (++column == keyLength) {
+                column = 0;
+            }
+        }
+
+        int[][] counts = new int[keyLength][ALPHABET_SIZE];
+        for (column = 0; column < keyLength; column++) {
+            for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+                if (wideCounts[column][letter] > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Letter count exceeds the supported range for key length " + keyLength);
+                }
+                counts[column][letter] = (int) wideCounts[column][letter];
+            }
+        }
+        return new ColumnHistograms(counts);
+    }
+
+    public long getColumnLength(int column) {
+        return columnLengths[column];
+    }
+
+    public int getCount(int column, int letter) {
+        return counts[column][letter];
+    }
+
+    public long getTotalLength() {
+        long total = 0;
+        for (long length : columnLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    // Approximate heap footprint, used to bound caches of histograms
+    public long estimatedBytes() {
+        long countBytes = (long) keyLength * (ARRAY_HEADER_BYTES + ALPHABET_SIZE * Integer.BYTES);
+        return countBytes + 2L * ARRAY_HEADER_BYTES + (long) keyLength * (Long.BYTES + Integer.BYTES);
+    }
+
+    // Direct access for the scoring kernels in this package; callers must not modify it
+    int[] column(int column) {
+        return counts[column];
+    }
+
+    public double indexOfCoincidence(int column) {
+        long n = columnLengths[column];
+        if (n <= 1) {
+            throw new IllegalArgumentException("Text must contain at least 2 characters to calculate IoC");
+        }
+        long sum = 0;
+        for (int count : counts[column]) {
+            sum += (long) count * (count - 1);
+        }
+        return (double) sum / ((double) n * (n - 1));
+    }
+}
@@ -0,0 +1,67 @@
+package service;
+
+import util.Language;
+
+/**
+ * Scoring kernels shared by the key recovery paths. Each column histogram is correlated with
+ * a per-letter weight vector under all 26 shifts: the letter frequencies for the classic
+ * score, or their logarithms for a log-likelihood.
+ */
+final class ColumnScoring {
+    private static final int A = ColumnHistograms.ALPHABET_SIZE;
+    private static final double MIN_FREQUENCY = 1e-5;
+
+    private ColumnScoring() {
+    }
+
+    // Correlation of each column with the language under every shift, indexed [column][shift]
+    static double[][] shiftScores(ColumnHistograms histograms, Language language) {
+        return correlate(histograms, language.getFrequencyVector());
+    }
+
+    // Log-likelihood of each column decrypted with key letter 'A' + shift, indexed [column][shift]
+    static double[][] logLikelihoods(ColumnHistograms histograms, Language language) {
+        return correlate(histograms, logFrequencies(language));
+    }
+
+    static double[] logFrequencies(Language language) {
+        double[] expected = language.getFrequencyVector();
+        double[] logExpected = new double[A];
+        for (int c = 0; c < A; c++) {
+            // Floor keeps letters the model never saw from dominating the likelihood
+            logExpected[c] = Math.log(Math.max(expected[c], MIN_FREQUENCY));
+        }
+        return logExpected;
+    }
+
+    // Weight of one column decrypted with key letter 'A' + shift
+    static double score(int[] counts, double[] weights, int shift) {
+        double score = 0;
+        for (int c = 0; c < A; c++) {
+            score += counts[c] * weights[(c - shift + A) % A];
+        }
+        return score;
+    }
+
+    // First shift with the highest score
+    static int bestShift(double[] scores) {
+        int bestShift = 0;
+        for (int shift = 1; shift < A; shift++) {
+            if (scores[shift] > scores[bestShift]) {
+                bestShift = shift;
+            }
+        }
+        return bestShift;
+    }
+
+    private static double[][] correlate(ColumnHistograms histograms, double[] weights) {
+        double[][] scores = new double[histograms.getKeyLength()][A];
+        for (int column = 0; column < histograms.getKeyLength(); column++) {
+            int[] counts = histograms.column(column);
+            for (int shift = 0; shift < A; shift++) {
+                scores[column][shift] = score(counts, weights, shift);
+            }
+        }
+        return scores;
+    }
+}
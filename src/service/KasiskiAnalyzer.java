@@ -1,18 +1,18 @@
 package service;
 
+import entity.OffHeapCipherText;
 import interfaces.ICipherText;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntFunction;
 
 public class KasiskiAnalyzer {
     private static final int MIN_PATTERN_LENGTH = 3;
     private static final int MAX_PATTERN_LENGTH = 7;
-    private static final int MAX_KEY_LENGTH = 19;
-    private static final int MIN_KEY_LENGTH = 2;  // Added minimum key length
-    private final FrequencyAnalyzer frequencyAnalyzer;
-
-    public KasiskiAnalyzer() {
-        this.frequencyAnalyzer = new FrequencyAnalyzer();
-    }
+    static final int MAX_KEY_LENGTH = 19;
+    static final int MIN_KEY_LENGTH = 2;  // Added minimum key length
+    private static final long CHECK_INTERVAL_MASK = 0x3FF;  // Poll the deadline every 1024 positions or distance pairs
+    private static final double SCORING_TIME_SHARE = 0.2;   // Share of the remaining deadline kept for scoring
 
     public static class KeyLengthProbability implements Comparable<KeyLengthProbability> {
         private final int length;
@@ -20,14 +20,22 @@ public class KasiskiAnalyzer {
         private final int patternCount;
         private final double indexOfCoincidence;
         private final double finalScore;
+        private final double confidenceInterval;
         private static final double PATTERN_WEIGHT = 0.6;  // Pattern probability weight
         private static final double IOC_WEIGHT = 0.4;      // Index of Coincidence weight
 
         public KeyLengthProbability(int length, double probability, int patternCount, double indexOfCoincidence) {
+            this(length, probability, patternCount, indexOfCoincidence, 0.0);
+        }
+
+        // confidenceInterval: half-width of the final score's confidence interval for sampled estimates, 0 when exact
+        public KeyLengthProbability(int length, double probability, int patternCount, double indexOfCoincidence,
+                                    double confidenceInterval) {
             this.length = length;
             this.probability = probability;
             this.patternCount = patternCount;
             this.indexOfCoincidence = indexOfCoincidence;
+            this.confidenceInterval = confidenceInterval;
             
             // Normalize IoC (typical range 0.06-0.08 for English)
             double normalizedIoC = Math.min((indexOfCoincidence - 0.03) / 0.05, 1.0) * 100;
@@ -35,10 +43,22 @@ public class KasiskiAnalyzer {
             this.finalScore = (probability * 100 * PATTERN_WEIGHT) + (normalizedIoC * IOC_WEIGHT);
         }
 
+        // Variance of the final score given the variances of its two estimated inputs
+        static double finalScoreVariance(double probabilityVariance, double iocVariance, double indexOfCoincidence) {
+            double probabilityFactor = 100 * PATTERN_WEIGHT;
+            // The normalized IoC is capped at 100, beyond which the score no longer depends on it
+            double iocFactor = (indexOfCoincidence - 0.03) / 0.05 < 1.0 ? 100 * IOC_WEIGHT / 0.05 : 0.0;
+            return probabilityFactor * probabilityFactor * probabilityVariance + iocFactor * iocFactor * iocVariance;
+        }
+
         @Override
         public String toString() {
-            return String.format("Length: %d | Pattern Probability: %.2f%% | Pattern Count: %d | Coincidence Index: %.3f | Final Score: %.2f%%",
+            String result = String.format("Length: %d | Pattern Probability: %.2f%% | Pattern Count: %d | Coincidence Index: %.3f | Final Score: %.2f%%",
                     length, probability * 100, patternCount, indexOfCoincidence, finalScore);
+            if (confidenceInterval > 0) {
+                result += String.format(" (± %.2f)", confidenceInterval);
+            }
+            return result;
         }
 
         public int getLength() {
@@ -49,10 +69,22 @@ public class KasiskiAnalyzer {
             return probability;
         }
 
+        public int getPatternCount() {
+            return patternCount;
+        }
+
+        public double getIndexOfCoincidence() {
+            return indexOfCoincidence;
+        }
+
         public double getFinalScore() {
             return finalScore;
         }
 
+        public double getConfidenceInterval() {
+            return confidenceInterval;
+        }
+
         @Override
         public int compareTo(KeyLengthProbability other) {
             return Double.compare(other.finalScore, this.finalScore);  // Descending order
@@ -60,92 +92,261 @@ public class KasiskiAnalyzer {
     }
 
     public List<KeyLengthProbability> findPossibleKeyLengths(ICipherText cipherText) {
+        return rankKeyLengths(cipherText, AnalysisContext.unbounded()).getCandidates();
+    }
+
+    public KeyLengthRanking rankKeyLengths(ICipherText cipherText, AnalysisContext context) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
+
+        RepeatStatistics repeats = collectRepeats(cipherText, context);
+        String text = cipherText.getText();
+        return scoreKeyLengths(repeats, length -> new ColumnHistograms(text, length), context);
+    }
+
+    public List<KeyLengthProbability> findPossibleKeyLengths(OffHeapCipherText cipherText) {
+        return rankKeyLengths(cipherText, AnalysisContext.unbounded()).getCandidates();
+    }
+
+    // Same ranking for off-heap texts; the repeat index lives in its own arena for the duration of the call
+    public KeyLengthRanking rankKeyLengths(OffHeapCipherText cipherText, AnalysisContext context) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
+        if (cipherText.length() < MIN_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Text length must be at least " + MIN_PATTERN_LENGTH + " characters");
+        }
+
+        RepeatStatistics repeats;
+        try (OffHeapRepeatIndex index = new OffHeapRepeatIndex(cipherText, MAX_PATTERN_LENGTH)) {
+            repeats = index.collect(MIN_PATTERN_LENGTH, MIN_KEY_LENGTH, MAX_KEY_LENGTH,
+                context.reserve(SCORING_TIME_SHARE));
+        }
+        return scoreKeyLengths(repeats, length -> ColumnHistograms.of(cipherText, length), context);
+    }
+
+    // Sampled estimate for triage on large texts; every result carries a confidence interval
+    public List<KeyLengthProbability> findPossibleKeyLengthsApproximate(ICipherText cipherText, SamplingOptions options) {
+        return rankKeyLengthsApproximate(cipherText, options, AnalysisContext.unbounded()).getCandidates();
+    }
+
+    public KeyLengthRanking rankKeyLengthsApproximate(ICipherText cipherText, SamplingOptions options,
+                                                      AnalysisContext context) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        String text = cipherText.getText();
+        // Same letters the exact path accepts, checked up front because sampling reads only some of them
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Text must contain only letters (A-Z)");
+            }
+        }
+        return sample(new KeyLengthSampler.Letters() {
+            @Override
+            public long length() {
+                return text.length();
+            }
+
+            @Override
+            public int at(long index) {
+                return Character.toUpperCase(text.charAt((int) index)) - 'A';
+            }
+        }, options, context);
+    }
+
+    public KeyLengthRanking rankKeyLengthsApproximate(OffHeapCipherText cipherText, SamplingOptions options,
+                                                      AnalysisContext context) {
         if (cipherText == null) {
             throw new IllegalArgumentException("CipherText cannot be null");
         }
+        return sample(new KeyLengthSampler.Letters() {
+            @Override
+            public long length() {
+                return cipherText.length();
+            }
+
+            @Override
+            public int at(long index) {
+                return cipherText.letterAt(index);
+            }
+        }, options, context);
+    }
+
+    private KeyLengthRanking sample(KeyLengthSampler.Letters letters, SamplingOptions options, AnalysisContext context) {
+        if (options == null) {
+            throw new IllegalArgumentException("SamplingOptions cannot be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
+        if (letters.length() < MIN_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Text length must be at least " + MIN_PATTERN_LENGTH + " characters");
+        }
+        return new KeyLengthSampler(letters, options, MIN_PATTERN_LENGTH, MIN_KEY_LENGTH, MAX_KEY_LENGTH).estimate(context);
+    }
+
+    // Reads the ranking stored in a persisted index instead of recomputing it
+    public List<KeyLengthProbability> findPossibleKeyLengths(AnalysisIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("AnalysisIndex cannot be null");
+        }
+        return index.getRanking().getCandidates();
+    }
+
+    // Everything the scoring phase needs from the repeats, indexed by candidate key length
+    static final class RepeatStatistics {
+        final Map<Integer, Integer> distanceFrequencies;  // Null when the collector does not keep raw distances
+        final long[] divisibleCounts;  // Repeat pairs whose distance is a multiple of the length
+        final long totalPairs;
+        final long[] patternCounts;
+        final boolean complete;
 
+        RepeatStatistics(Map<Integer, Integer> distanceFrequencies, long[] divisibleCounts, long totalPairs,
+                         long[] patternCounts, boolean complete) {
+            this.distanceFrequencies = distanceFrequencies;
+            this.divisibleCounts = divisibleCounts;
+            this.totalPairs = totalPairs;
+            this.patternCounts = patternCounts;
+            this.complete = complete;
+        }
+    }
+
+    RepeatStatistics collectRepeats(ICipherText cipherText, AnalysisContext context) {
         if (cipherText.getText().length() < MIN_PATTERN_LENGTH) {
             throw new IllegalArgumentException("Text length must be at least " + MIN_PATTERN_LENGTH + " characters");
         }
 
+        String text = cipherText.getText();
+        // Stop collecting early enough that the lengths can still be scored from what was found
+        AnalysisContext collection = context.reserve(SCORING_TIME_SHARE);
         Map<Integer, Integer> distanceFrequencies = new HashMap<>();
         Map<Integer, Integer> patternCounts = new HashMap<>();
+        boolean complete = true;
+        long steps = 0;
 
-        // Find repeating patterns and their frequencies
+        // Find repeating patterns and their frequencies. Each occurrence is paired with the earlier
+        // ones as the index is built, so a deadline anywhere still leaves usable distances behind.
+        patternLoop:
         for (int patternLength = MIN_PATTERN_LENGTH; patternLength <= MAX_PATTERN_LENGTH; patternLength++) {
             try {
-                Map<String, List<Integer>> patterns = cipherText.findRepeatingPatterns(patternLength);
-                
-                for (Map.Entry<String, List<Integer>> entry : patterns.entrySet()) {
-                    List<Integer> positions = entry.getValue();
-                    if (positions.size() < 2) {
-                        continue;
+                Map<String, List<Integer>> patterns = new HashMap<>();
+                for (int position = 0; position <= text.length() - patternLength; position++) {
+                    if ((++steps & CHECK_INTERVAL_MASK) == 0 && collection.shouldStop()) {
+                        complete = false;
+                        break patternLoop;
                     }
-                    
-                    for (int i = 0; i < positions.size() - 1; i++) {
-                        for (int j = i + 1; j < positions.size(); j++) {
-                            int distance = positions.get(j) - positions.get(i);
-                            if (distance <= 0) {
-                                throw new IllegalStateException("Invalid pattern positions detected");
-                            }
-                            distanceFrequencies.merge(distance, 1, Integer::sum);
+                    List<Integer> positions = patterns.computeIfAbsent(
+                        text.substring(position, position + patternLength), k -> new ArrayList<>());
+
+                    // Huge position lists are quadratic here, so poll the deadline inside as well
+                    for (int earlier : positions) {
+                        if ((++steps & CHECK_INTERVAL_MASK) == 0 && collection.shouldStop()) {
+                            complete = false;
+                            break patternLoop;
                         }
+                        distanceFrequencies.merge(position - earlier, 1, Integer::sum);
                     }
-                }
-                
-                // Store pattern count for each length
-                patterns.forEach((pattern, positions) -> {
-                    if (positions.size() >= 2) {
-                        int firstDistance = positions.get(1) - positions.get(0);
-                        if (firstDistance > 0) {
-                            for (int factor : findFactors(firstDistance)) {
-                                if (factor <= MAX_KEY_LENGTH) {
-                                    patternCounts.merge(factor, 1, Integer::sum);
-                                }
+
+                    // Pattern count: the first repeat distance of each pattern votes for its factors
+                    if (positions.size() == 1) {
+                        for (int factor : findFactors(position - positions.get(0))) {
+                            if (factor <= MAX_KEY_LENGTH) {
+                                patternCounts.merge(factor, 1, Integer::sum);
                             }
                         }
                     }
-                });
+                    positions.add(position);
+                }
+            } catch (CancellationException e) {
+                throw e;
             } catch (Exception e) {
                 throw new IllegalStateException("Error analyzing patterns of length " + patternLength + ": " + e.getMessage());
             }
         }
 
-        if (distanceFrequencies.isEmpty()) {
+        long[] divisibleCounts = new long[MAX_KEY_LENGTH + 1];
+        long[] patternCountsByLength = new long[MAX_KEY_LENGTH + 1];
+        long totalPairs = 0;
+        // One pass over the distances for all lengths; this runs after the deadline check, so keep it cheap
+        for (Map.Entry<Integer, Integer> entry : distanceFrequencies.entrySet()) {
+            int distance = entry.getKey();
+            int count = entry.getValue();
+            totalPairs += count;
+            for (int length = MIN_KEY_LENGTH; length <= MAX_KEY_LENGTH; length++) {
+                if (distance % length == 0) {
+                    divisibleCounts[length] += count;
+                }
+            }
+        }
+        for (int length = MIN_KEY_LENGTH; length <= MAX_KEY_LENGTH; length++) {
+            patternCountsByLength[length] = patternCounts.getOrDefault(length, 0);
+        }
+        return new RepeatStatistics(distanceFrequencies, divisibleCounts, totalPairs, patternCountsByLength, complete);
+    }
+
+    KeyLengthRanking scoreKeyLengths(RepeatStatistics repeats, IntFunction<ColumnHistograms> histograms,
+                                     AnalysisContext context) {
+        boolean complete = repeats.complete;
+
+        if (repeats.totalPairs == 0) {
+            if (!complete) {
+                throw new AnalysisTimeoutException("Deadline exceeded before any repeating patterns were found");
+            }
             throw new IllegalStateException("No repeating patterns found in the text");
         }
 
         // Calculate probabilities for each possible key length
         List<KeyLengthProbability> probabilities = new ArrayList<>();
-        Set<Integer> possibleLengths = new HashSet<>();
+        List<Integer> possibleLengths = new ArrayList<>();
         
-        // Find all possible lengths
-        for (int distance : distanceFrequencies.keySet()) {
-            possibleLengths.addAll(findFactors(distance));
+        // Find all possible lengths (those dividing at least one repeat distance)
+        for (int length = MIN_KEY_LENGTH; length <= MAX_KEY_LENGTH; length++) {
+            if (repeats.divisibleCounts[length] > 0) {
+                possibleLengths.add(length);
+            }
         }
-        possibleLengths.removeIf(length -> length > MAX_KEY_LENGTH || length < MIN_KEY_LENGTH);
 
         if (possibleLengths.isEmpty()) {
             throw new IllegalStateException("No valid key lengths found (must be between " + MIN_KEY_LENGTH + " and " + MAX_KEY_LENGTH + ")");
         }
 
         // Calculate total frequency for normalization
-        int totalFrequency = distanceFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+        long totalFrequency = repeats.totalPairs;
+
+        // Score the most promising lengths first so a deadline cuts off the weakest candidates
+        List<Integer> scoringOrder = new ArrayList<>(possibleLengths);
+        scoringOrder.sort((a, b) -> Long.compare(repeats.divisibleCounts[b], repeats.divisibleCounts[a]));
         
-        for (int length : possibleLengths) {
+        for (int length : scoringOrder) {
+            // The most promising length is always scored, so a deadline still yields a ranking
+            context.checkCancelled();
+            if (!probabilities.isEmpty() && context.isExpired()) {
+                complete = false;
+                break;
+            }
             try {
                 // Calculate pattern frequency score
-                int frequencyScore = countFactorFrequency(length, distanceFrequencies);
+                long frequencyScore = repeats.divisibleCounts[length];
                 
                 // Calculate Index of Coincidence for this key length
-                List<String> subTexts = cipherText.getSubstrings(length);
-                double avgIoC = subTexts.stream()
-                    .mapToDouble(frequencyAnalyzer::calculateIndexOfCoincidence)
-                    .average()
-                    .orElseThrow(() -> new IllegalStateException("Failed to calculate IoC for length " + length));
+                ColumnHistograms columns = histograms.apply(length);
+                double totalIoC = 0;
+                for (int column = 0; column < length; column++) {
+                    totalIoC += columns.indexOfCoincidence(column);
+                }
+                double avgIoC = totalIoC / length;
                 
                 double probability = (double) frequencyScore / totalFrequency;
-                int patternCount = patternCounts.getOrDefault(length, 0);
+                int patternCount = (int) Math.min(repeats.patternCounts[length], Integer.MAX_VALUE);
                 
                 probabilities.add(new KeyLengthProbability(length, probability, patternCount, avgIoC));
             } catch (Exception e) {
@@ -157,8 +358,10 @@ public class KasiskiAnalyzer {
             throw new IllegalStateException("Failed to calculate probabilities for any key length");
         }
 
+        // Length order first so equal scores keep a stable, deterministic order
+        probabilities.sort(Comparator.comparingInt(KeyLengthProbability::getLength));
         Collections.sort(probabilities);
-        return probabilities;
+        return new KeyLengthRanking(probabilities, complete);
     }
 
     private List<Integer> findFactors(int number) {
@@ -178,17 +381,4 @@ public class KasiskiAnalyzer {
         return factors;
     }
 
-    private int countFactorFrequency(int factor, Map<Integer, Integer> frequencies) {
-        if (factor <= 0) {
-            throw new IllegalArgumentException("Factor must be positive");
-        }
-        if (frequencies == null || frequencies.isEmpty()) {
-            throw new IllegalArgumentException("Frequencies map cannot be null or empty");
-        }
-
-        return frequencies.entrySet().stream()
-            .filter(e -> e.getKey() % factor == 0)
-            .mapToInt(Map.Entry::getValue)
-            .sum();
-    }
 }
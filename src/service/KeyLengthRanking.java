@@ -0,0 +1,40 @@
+package service;
+
+import service.KasiskiAnalyzer.KeyLengthProbability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ranked key lengths, possibly cut short by a deadline.
+ */
+public class KeyLengthRanking {
+    private final List<KeyLengthProbability> candidates;
+    private final boolean complete;
+
+    public KeyLengthRanking(List<KeyLengthProbability> candidates, boolean complete) {
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        this.complete = complete;
+    }
+
+    public List<KeyLengthProbability> getCandidates() {
+        return candidates;
+    }
+
+    // False when the deadline hit before every candidate length was scored
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean isEmpty() {
+        return candidates.isEmpty();
+    }
+
+    public KeyLengthProbability getBest() {
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("No possible key lengths found");
+        }
+        return candidates.get(0);
+    }
+}
@@ -0,0 +1,171 @@
+package service;
+
+import service.KasiskiAnalyzer.KeyLengthProbability;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Estimates the key length ranking from sampled offsets instead of the whole text.
+ * For every sampled offset it draws one same-column partner per key length (IoC estimate)
+ * and looks a bounded window ahead for the next occurrence of the pattern starting there
+ * (distance divisibility estimate). Samples double each round until the best length's
+ * confidence interval no longer overlaps the runner-up's, so the cost depends on how clear
+ * the answer is, not on the text size.
+ */
+class KeyLengthSampler {
+    private static final long CHECK_INTERVAL_MASK = 0x3FF;
+
+    // Random access to the letters (0-25) of either a String or an off-heap text
+    interface Letters {
+        long length();
+
+        int at(long index);
+    }
+
+    private final Letters text;
+    private final SamplingOptions options;
+    private final int patternLength;
+    private final int minKeyLength;
+    private final int maxKeyLength;
+    private final SplittableRandom random;
+
+    private final long[] iocTrials;
+    private final long[] iocMatches;
+    private final long[] divisibleRepeats;
+    private long repeats;
+    private long samples;
+
+    KeyLengthSampler(Letters text, SamplingOptions options, int patternLength, int minKeyLength, int maxKeyLength) {
+        this.text = text;
+        this.options = options;
+        this.patternLength = patternLength;
+        this.minKeyLength = minKeyLength;
+        this.maxKeyLength = maxKeyLength;
+        this.random = new SplittableRandom(options.getSeed());
+        this.iocTrials = new long[maxKeyLength + 1];
+        this.iocMatches = new long[maxKeyLength + 1];
+        this.divisibleRepeats = new long[maxKeyLength + 1];
+    }
+
+    KeyLengthRanking estimate(AnalysisContext context) {
+        long n = text.length();
+        int round = options.getInitialSamples();
+        boolean complete = true;
+
+        while (true) {
+            long drawn = 0;
+            for (int k = 0; k < round; k++) {
+                if ((k & CHECK_INTERVAL_MASK) == 0 && context.shouldStop()) {
+                    complete = false;
+                    break;
+                }
+                long offset = options.isStratified()
+                    ? Math.min(n - 1, (long) ((k + random.nextDouble()) * n / round))
+                    : random.nextLong(n);
+                sampleCoincidence(offset);
+                sampleRepeat(offset);
+                drawn++;
+            }
+            samples += drawn;
+
+            List<KeyLengthProbability> ranking = rank();
+            if (!complete) {
+                if (ranking.isEmpty()) {
+                    throw new AnalysisTimeoutException("Deadline exceeded before any key length could be estimated");
+                }
+                return new KeyLengthRanking(ranking, false);
+            }
+            if (isSeparated(ranking) || samples >= options.getMaxSamples()) {
+                if (ranking.isEmpty()) {
+                    throw new IllegalStateException("No repeating patterns found in the sampled offsets");
+                }
+                return new KeyLengthRanking(ranking, true);
+            }
+            round = (int) Math.min(samples, options.getMaxSamples() - samples);
+        }
+    }
+
+    // One random partner in the same column of every candidate key length
+    private void sampleCoincidence(long offset) {
+        long n = text.length();
+        int letter = text.at(offset);
+        for (int keyLength = minKeyLength; keyLength <= maxKeyLength; keyLength++) {
+            long column = offset % keyLength;
+            long columnSize = (n - 1 - column) / keyLength + 1;
+            if (columnSize < 2) {
+                continue;
+            }
+            long slot = random.nextLong(columnSize - 1);
+            if (slot >= offset / keyLength) {
+                slot++;
+            }
+            iocTrials[keyLength]++;
+            if (text.at(column + slot * keyLength) == letter) {
+                iocMatches[keyLength]++;
+            }
+        }
+    }
+
+    // Next occurrence of the pattern at offset within the window, counted as one repeat pair
+    private void sampleRepeat(long offset) {
+        long n = text.length();
+        long last = Math.min(n - patternLength, offset + options.getRepeatWindow());
+        for (long candidate = offset + 1; candidate <= last; candidate++) {
+            int t = 0;
+            while (t < patternLength && text.at(candidate + t) == text.at(offset + t)) {
+                t++;
+            }
+            if (t == patternLength) {
+                long distance = candidate - offset;
+                repeats++;
+                for (int keyLength = minKeyLength; keyLength <= maxKeyLength; keyLength++) {
+                    if (distance % keyLength == 0) {
+                        divisibleRepeats[keyLength]++;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private List<KeyLengthProbability> rank() {
+        double z = options.getZScore();
+        List<KeyLengthProbability> ranking = new ArrayList<>();
+        for (int keyLength = minKeyLength; keyLength <= maxKeyLength; keyLength++) {
+            if (divisibleRepeats[keyLength] == 0 || iocTrials[keyLength] == 0) {
+                continue;
+            }
+            double probability = (double) divisibleRepeats[keyLength] / repeats;
+            double ioc = (double) iocMatches[keyLength] / iocTrials[keyLength];
+            double variance = KeyLengthProbability.finalScoreVariance(
+                proportionVariance(divisibleRepeats[keyLength], repeats, z),
+                proportionVariance(iocMatches[keyLength], iocTrials[keyLength], z), ioc);
+            // Pattern count here is the number of sampled repeats supporting this length
+            int supportingRepeats = (int) Math.min(divisibleRepeats[keyLength], Integer.MAX_VALUE);
+            ranking.add(new KeyLengthProbability(keyLength, probability, supportingRepeats, ioc, z * Math.sqrt(variance)));
+        }
+        ranking.sort(Comparator.comparingInt(KeyLengthProbability::getLength));
+        ranking.sort(null);
+        return ranking;
+    }
+
+    // Agresti-Coull variance, which stays positive when the observed proportion is 0 or 1
+    private static double proportionVariance(long successes, long trials, double z) {
+        double adjustedTrials = trials + z * z;
+        double p = (successes + z * z / 2) / adjustedTrials;
+        return p * (1 - p) / adjustedTrials;
+    }
+
+    private static boolean isSeparated(List<KeyLengthProbability> ranking) {
+        if (ranking.size() < 2) {
+            return !ranking.isEmpty();
+        }
+        KeyLengthProbability best = ranking.get(0);
+        KeyLengthProbability runnerUp = ranking.get(1);
+        return best.getFinalScore() - best.getConfidenceInterval()
+            > runnerUp.getFinalScore() + runnerUp.getConfidenceInterval();
+    }
+}
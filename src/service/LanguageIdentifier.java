@@ -0,0 +1,99 @@
+package service;
+
+import entity.Key;
+import interfaces.IKey;
+import util.Language;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Scores one set of column histograms against every registered language model.
+ * Each language costs a 26x26xL pass over the same histograms; the text is read only once.
+ * The key per language is recovered the same way as VigenereCipherBreaker#analyzeKey.
+ */
+public class LanguageIdentifier {
+    private final MutualIndexSolver mutualIndexSolver = new MutualIndexSolver();
+
+    public static class LanguageCandidate implements Comparable<LanguageCandidate> {
+        private final Language language;
+        private final IKey key;
+        private final double score;
+
+        public LanguageCandidate(Language language, IKey key, double score) {
+            this.language = language;
+            this.key = key;
+            this.score = score;
+        }
+
+        public Language getLanguage() {
+            return language;
+        }
+
+        public IKey getKey() {
+            return key;
+        }
+
+        // Mean log-likelihood per letter of the decrypted text under this language (higher is better)
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Language: %s | Key: %s | Score: %.4f", language, key.getText(), score);
+        }
+
+        @Override
+        public int compareTo(LanguageCandidate other) {
+            return Double.compare(other.score, this.score);  // Descending order
+        }
+    }
+
+    public List<LanguageCandidate> identify(ColumnHistograms histograms) {
+        return identify(histograms, Language.values());
+    }
+
+    public List<LanguageCandidate> identify(ColumnHistograms histograms, Language[] languages) {
+        return identify(histograms, languages, language -> ColumnScoring.shiftScores(histograms, language));
+    }
+
+    // Lets a caller that keeps the per-language shift scores (see AnalysisSession) skip recomputing them
+    List<LanguageCandidate> identify(ColumnHistograms histograms, Language[] languages,
+                                     Function<Language, double[][]> shiftScores) {
+        if (histograms == null || languages == null) {
+            throw new IllegalArgumentException("Histograms and languages cannot be null");
+        }
+        long totalLength = histograms.getTotalLength();
+        if (totalLength == 0) {
+            throw new IllegalArgumentException("Histograms cannot be empty");
+        }
+
+        // Short columns are aligned against each other instead of scored one by one
+        boolean shortColumns = MutualIndexSolver.prefersFor(histograms);
+
+        List<LanguageCandidate> candidates = new ArrayList<>();
+        for (Language language : languages) {
+            double[] logExpected = ColumnScoring.logFrequencies(language);
+            String solvedKey = shortColumns ? mutualIndexSolver.solve(histograms, language).getText() : null;
+            double[][] scores = shortColumns ? null : shiftScores.apply(language);
+
+            StringBuilder keyBuilder = new StringBuilder();
+            double logLikelihood = 0;
+            for (int column = 0; column < histograms.getKeyLength(); column++) {
+                int bestShift = shortColumns
+                    ? solvedKey.charAt(column) - 'A'
+                    : ColumnScoring.bestShift(scores[column]);
+                logLikelihood += ColumnScoring.score(histograms.column(column), logExpected, bestShift);
+                keyBuilder.append((char) ('A' + bestShift));
+            }
+
+            candidates.add(new LanguageCandidate(language, new Key(keyBuilder.toString(), language),
+                logLikelihood / totalLength));
+        }
+
+        candidates.sort(null);
+        return candidates;
+    }
+}
@@ -0,0 +1,239 @@
+package service;
+
+import entity.Key;
+import interfaces.IKey;
+import util.Language;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key recovery for short ciphertexts, where a single column holds too few letters to be
+ * scored against the language on its own. The mutual index of coincidence between every
+ * pair of columns gives their relative shifts; the aligned key leaves 26 global rotations,
+ * which are ranked on the pooled letters of all columns. The best rotation is then refined
+ * against the combined column log-likelihood and pairwise agreement.
+ */
+public class MutualIndexSolver {
+    private static final int A = ColumnHistograms.ALPHABET_SIZE;
+    private static final int MAX_REFINEMENT_PASSES = 10;
+    private static final double PAIR_WEIGHT = 0.5;  // Pairwise MIC weight relative to the language fit
+    static final int SHORT_COLUMN_THRESHOLD = 40;  // Letters per column below which the solver is used
+
+    // True when columns are too short to score independently and should be aligned by this solver
+    static boolean prefersFor(ColumnHistograms histograms) {
+        return histograms.getTotalLength() / histograms.getKeyLength() < SHORT_COLUMN_THRESHOLD;
+    }
+
+    public IKey solve(ColumnHistograms histograms, Language language) {
+        return rankCandidates(histograms, language).get(0);
+    }
+
+    // Refined key first, followed by the remaining rotations of the aligned key by language fit
+    public List<IKey> rankCandidates(ColumnHistograms histograms, Language language) {
+        if (histograms == null || language == null) {
+            throw new IllegalArgumentException("Histograms and Language cannot be null");
+        }
+        int keyLength = histograms.getKeyLength();
+        for (int column = 0; column < keyLength; column++) {
+            if (histograms.getColumnLength(column) == 0) {
+                throw new IllegalStateException("Empty column encountered during analysis");
+            }
+        }
+
+        double[][][] mutualIndex = computeMutualIndex(histograms);
+        int[] offsets = alignColumns(mutualIndex, keyLength);
+        double[][] languageFit = ColumnScoring.logLikelihoods(histograms, language);
+        // Scales the per-pair MIC (a ratio) to the same magnitude as a column log-likelihood
+        double pairWeight = PAIR_WEIGHT * histograms.getTotalLength() / keyLength;
+
+        // Score each global rotation g: column j has key letter (g + offsets[j]) mod 26
+        double[] rotationScores = new double[A];
+        for (int g = 0; g < A; g++) {
+            for (int column = 0; column < keyLength; column++) {
+                rotationScores[g] += languageFit[column][(g + offsets[column]) % A];
+            }
+        }
+        List<Integer> rotations = new ArrayList<>();
+        for (int g = 0; g < A; g++) {
+            rotations.add(g);
+        }
+        rotations.sort((a, b) -> Double.compare(rotationScores[b], rotationScores[a]));
+
+        // Refine from both the best rotation and the independent per-column optimum, keep the better one
+        int[] fromRotation = new int[keyLength];
+        int[] fromColumns = new int[keyLength];
+        for (int column = 0; column < keyLength; column++) {
+            fromRotation[column] = (rotations.get(0) + offsets[column]) % A;
+            fromColumns[column] = ColumnScoring.bestShift(languageFit[column]);
+        }
+        refine(fromRotation, languageFit, mutualIndex, pairWeight);
+        refine(fromColumns, languageFit, mutualIndex, pairWeight);
+        int[] best = objective(fromRotation, languageFit, mutualIndex, pairWeight)
+            >= objective(fromColumns, languageFit, mutualIndex, pairWeight) ? fromRotation : fromColumns;
+
+        List<IKey> candidates = new ArrayList<>();
+        candidates.add(toKey(best, language));
+        for (int g : rotations) {
+            int[] shifts = new int[keyLength];
+            for (int column = 0; column < keyLength; column++) {
+                shifts[column] = (g + offsets[column]) % A;
+            }
+            IKey candidate = toKey(shifts, language);
+            if (!candidate.getText().equals(candidates.get(0).getText())) {
+                candidates.add(candidate);
+            }
+        }
+        return candidates;
+    }
+
+    private static IKey toKey(int[] shifts, Language language) {
+        StringBuilder keyBuilder = new StringBuilder();
+        for (int shift : shifts) {
+            keyBuilder.append((char) ('A' + shift));
+        }
+        return new Key(keyBuilder.toString(), language);
+    }
+
+    private static double objective(int[] shifts, double[][] languageFit, double[][][] mutualIndex, double pairWeight) {
+        double total = 0;
+        for (int j = 0; j < shifts.length; j++) {
+            total += languageFit[j][shifts[j]];
+            for (int i = 0; i < j; i++) {
+                total += pairWeight * pairScore(mutualIndex, i, j, shifts[j] - shifts[i]);
+            }
+        }
+        return total;
+    }
+
+    // Coordinate ascent on the objective, one column at a time
+    private static void refine(int[] shifts, double[][] languageFit, double[][][] mutualIndex, double pairWeight) {
+        int keyLength = shifts.length;
+        for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+            boolean changed = false;
+            for (int j = 0; j < keyLength; j++) {
+                int bestShift = shifts[j];
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < A; k++) {
+                    double score = languageFit[j][k];
+                    for (int i = 0; i < keyLength; i++) {
+                        if (i != j) {
+                            score += pairWeight * pairScore(mutualIndex, i, j, k - shifts[i]);
+                        }
+                    }
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestShift = k;
+                    }
+                }
+                if (bestShift != shifts[j]) {
+                    shifts[j] = bestShift;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    // mutualIndex[i][j][s] for i < j: MIC of column i against column j rotated back by s,
+    // i.e. how well k_j - k_i = s explains the two histograms
+    private static double[][][] computeMutualIndex(ColumnHistograms histograms) {
+        int keyLength = histograms.getKeyLength();
+        double[][][] mutualIndex = new double[keyLength][keyLength][];
+        for (int i = 0; i < keyLength; i++) {
+            int[] hi = histograms.column(i);
+            double ni = histograms.getColumnLength(i);
+            for (int j = i + 1; j < keyLength; j++) {
+                int[] hj = histograms.column(j);
+                double norm = ni * histograms.getColumnLength(j);
+                double[] scores = new double[A];
+                for (int s = 0; s < A; s++) {
+                    long sum = 0;
+                    for (int c = 0; c < A; c++) {
+                        int shifted = c + s;
+                        sum += (long) hi[c] * hj[shifted < A ? shifted : shifted - A];
+                    }
+                    scores[s] = sum / norm;
+                }
+                mutualIndex[i][j] = scores;
+            }
+        }
+        return mutualIndex;
+    }
+
+    private static double pairScore(double[][][] mutualIndex, int i, int j, int relativeShift) {
+        int s = ((relativeShift % A) + A) % A;
+        if (i < j) {
+            return mutualIndex[i][j][s];
+        }
+        return mutualIndex[j][i][(A - s) % A];
+    }
+
+    // Offsets relative to column 0 that maximize the total pairwise MIC
+    private static int[] alignColumns(double[][][] mutualIndex, int keyLength) {
+        int[] offsets = new int[keyLength];
+        if (keyLength == 1) {
+            return offsets;
+        }
+
+        // Seed with a maximum spanning tree over the most confident pairwise shifts
+        boolean[] placed = new boolean[keyLength];
+        placed[0] = true;
+        for (int step = 1; step < keyLength; step++) {
+            int bestColumn = -1;
+            int bestOffset = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < keyLength; i++) {
+                if (!placed[i]) {
+                    continue;
+                }
+                for (int j = 0; j < keyLength; j++) {
+                    if (placed[j]) {
+                        continue;
+                    }
+                    for (int s = 0; s < A; s++) {
+                        double score = pairScore(mutualIndex, i, j, s);
+                        if (score > bestScore) {
+                            bestScore = score;
+                            bestColumn = j;
+                            bestOffset = (offsets[i] + s) % A;
+                        }
+                    }
+                }
+            }
+            placed[bestColumn] = true;
+            offsets[bestColumn] = bestOffset;
+        }
+
+        // Refine each column against all others until the alignment is stable
+        for (int pass = 0; pass < MAX_REFINEMENT_PASSES; pass++) {
+            boolean changed = false;
+            for (int j = 1; j < keyLength; j++) {
+                int bestOffset = offsets[j];
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int r = 0; r < A; r++) {
+                    double score = 0;
+                    for (int i = 0; i < keyLength; i++) {
+                        if (i != j) {
+                            score += pairScore(mutualIndex, i, j, r - offsets[i]);
+                        }
+                    }
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestOffset = r;
+                    }
+                }
+                if (bestOffset != offsets[j]) {
+                    offsets[j] = bestOffset;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+        return offsets;
+    }
+}
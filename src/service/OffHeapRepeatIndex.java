@@ -0,0 +1,250 @@
+package service;
+
+import entity.OffHeapCipherText;
+import util.OffHeapArena;
+import util.OffHeapArena.LongSegment;
+
+/**
+ * Repeat index for texts that do not fit on the heap. Every text position is stored once,
+ * off-heap, sorted by the pattern that starts there, so each repeating pattern of every
+ * length up to MAX_PATTERN_LENGTH is a contiguous run. Distances are never materialized:
+ * the scoring phase only needs, per key length, how many repeat pairs have a distance that
+ * is a multiple of it, which is counted from the positions' residues in O(run size).
+ *
+ * Heap use is constant in the text size; the index needs 8 bytes per letter off-heap.
+ */
+class OffHeapRepeatIndex implements AutoCloseable {
+    private static final int RADIX = 27;  // 0 marks "past the end of the text", letters are 1-26
+    private static final int BUCKET_DIGITS = 3;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final long CHECK_INTERVAL_MASK = 0xFFFF;
+
+    private final OffHeapCipherText text;
+    private final int maxPatternLength;
+    private final long[] powers;
+    private final OffHeapArena arena;
+    private final LongSegment positions;
+    private final long length;
+    private boolean sorted;
+
+    OffHeapRepeatIndex(OffHeapCipherText text, int maxPatternLength) {
+        this.text = text;
+        this.maxPatternLength = maxPatternLength;
+        this.length = text.length();
+        this.powers = new long[maxPatternLength + 1];
+        powers[0] = 1;
+        for (int i = 1; i <= maxPatternLength; i++) {
+            powers[i] = powers[i - 1] * RADIX;
+        }
+        this.arena = new OffHeapArena();
+        this.positions = arena.allocateLongs(length);
+    }
+
+    // Base-27 code of the maxPatternLength letters starting at position, lexicographic order
+    private long code(long position) {
+        long code = 0;
+        for (int t = 0; t < maxPatternLength; t++) {
+            long index = position + t;
+            code = code * RADIX + (index < length ? text.letterAt(index) + 1 : 0);
+        }
+        return code;
+    }
+
+    // Returns false if the context stopped the sort before it finished
+    private boolean sort(AnalysisContext context) {
+        // Counting sort on the first letters, then each bucket is sorted by the full code
+        int bucketCount = (int) powers[BUCKET_DIGITS];
+        long bucketDivisor = powers[maxPatternLength - BUCKET_DIGITS];
+        long[] bucketStarts = new long[bucketCount + 1];
+        for (long i = 0; i < length; i++) {
+            if ((i & CHECK_INTERVAL_MASK) == 0 && context.shouldStop()) {
+                return false;
+            }
+            bucketStarts[(int) (code(i) / bucketDivisor) + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            bucketStarts[b + 1] += bucketStarts[b];
+        }
+        long[] next = bucketStarts.clone();
+        for (long i = 0; i < length; i++) {
+            if ((i & CHECK_INTERVAL_MASK) == 0 && context.shouldStop()) {
+                return false;
+            }
+            positions.set(next[(int) (code(i) / bucketDivisor)]++, i);
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            if (context.shouldStop()) {
+                return false;
+            }
+            quickSort(bucketStarts[b], bucketStarts[b + 1]);
+        }
+        sorted = true;
+        return true;
+    }
+
+    // Three-way quicksort on [lo, hi); handles the long runs of equal codes found in real text
+    private void quickSort(long lo, long hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            long pivot = medianOfThree(code(positions.get(lo)), code(positions.get(lo + (hi - lo) / 2)),
+                code(positions.get(hi - 1)));
+            long lt = lo;
+            long gt = hi - 1;
+            long i = lo;
+            while (i <= gt) {
+                long c = code(positions.get(i));
+                if (c < pivot) {
+                    swap(lt++, i++);
+                } else if (c > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            // Recurse into the smaller side to bound the stack depth
+            if (lt - lo < hi - gt - 1) {
+                quickSort(lo, lt);
+                lo = gt + 1;
+            } else {
+                quickSort(gt + 1, hi);
+                hi = lt;
+            }
+        }
+        for (long i = lo + 1; i < hi; i++) {
+            long position = positions.get(i);
+            long c = code(position);
+            long j = i - 1;
+            while (j >= lo && code(positions.get(j)) > c) {
+                positions.set(j + 1, positions.get(j));
+                j--;
+            }
+            positions.set(j + 1, position);
+        }
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private void swap(long i, long j) {
+        long tmp = positions.get(i);
+        positions.set(i, positions.get(j));
+        positions.set(j, tmp);
+    }
+
+    KasiskiAnalyzer.RepeatStatistics collect(int minPatternLength, int minKeyLength, int maxKeyLength,
+                                             AnalysisContext context) {
+        long[] divisibleCounts = new long[maxKeyLength + 1];
+        long[] patternCounts = new long[maxKeyLength + 1];
+        long[] totalPairs = new long[1];
+        if (!sorted && !sort(context)) {
+            return new KasiskiAnalyzer.RepeatStatistics(null, divisibleCounts, 0, patternCounts, false);
+        }
+
+        int runCount = maxPatternLength - minPatternLength + 1;
+        Run[] runs = new Run[runCount];
+        for (int r = 0; r < runCount; r++) {
+            runs[r] = new Run(minPatternLength + r, maxKeyLength);
+        }
+
+        boolean complete = true;
+        for (long i = 0; i < length; i++) {
+            if ((i & CHECK_INTERVAL_MASK) == 0 && context.shouldStop()) {
+                complete = false;
+                break;
+            }
+            long position = positions.get(i);
+            long code = code(position);
+            for (Run run : runs) {
+                long prefix = code / powers[maxPatternLength - run.patternLength];
+                if (run.size == 0 || prefix != run.prefix) {
+                    run.flush(divisibleCounts, patternCounts, totalPairs, minKeyLength);
+                    run.prefix = prefix;
+                    run.valid = length - position >= run.patternLength;
+                }
+                if (run.valid) {
+                    run.add(position);
+                }
+            }
+        }
+        for (Run run : runs) {
+            run.flush(divisibleCounts, patternCounts, totalPairs, minKeyLength);
+        }
+        return new KasiskiAnalyzer.RepeatStatistics(null, divisibleCounts, totalPairs[0], patternCounts, complete);
+    }
+
+    // One group of equal patterns; residue counters are only filled once the pattern repeats
+    private static final class Run {
+        final int patternLength;
+        final int maxKeyLength;
+        final long[] residues;  // residues[offset(L) + position % L]
+        long prefix;
+        boolean valid;
+        long size;
+        long first;
+        long second;
+
+        Run(int patternLength, int maxKeyLength) {
+            this.patternLength = patternLength;
+            this.maxKeyLength = maxKeyLength;
+            this.residues = new long[maxKeyLength * (maxKeyLength + 1) / 2];
+        }
+
+        private static int offset(int keyLength) {
+            return keyLength * (keyLength - 1) / 2;
+        }
+
+        void add(long position) {
+            if (size == 0) {
+                first = position;
+            } else {
+                if (size == 1) {
+                    addResidues(first);
+                    second = Long.MAX_VALUE;
+                }
+                addResidues(position);
+                // Track the two earliest positions for the first-distance pattern count
+                if (position < first) {
+                    second = first;
+                    first = position;
+                } else if (position < second) {
+                    second = position;
+                }
+            }
+            size++;
+        }
+
+        private void addResidues(long position) {
+            for (int keyLength = 1; keyLength <= maxKeyLength; keyLength++) {
+                residues[offset(keyLength) + (int) (position % keyLength)]++;
+            }
+        }
+
+        void flush(long[] divisibleCounts, long[] patternCounts, long[] totalPairs, int minKeyLength) {
+            if (size >= 2) {
+                totalPairs[0] += size * (size - 1) / 2;
+                for (int keyLength = 1; keyLength <= maxKeyLength; keyLength++) {
+                    int base = offset(keyLength);
+                    for (int r = 0; r < keyLength; r++) {
+                        long count = residues[base + r];
+                        if (keyLength >= minKeyLength) {
+                            divisibleCounts[keyLength] += count * (count - 1) / 2;
+                        }
+                        residues[base + r] = 0;
+                    }
+                }
+                long firstDistance = second - first;
+                for (int keyLength = minKeyLength; keyLength <= maxKeyLength; keyLength++) {
+                    if (firstDistance % keyLength == 0) {
+                        patternCounts[keyLength]++;
+                    }
+                }
+            }
+            size = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+/**
+ * Settings for the sampling-based key length estimate (see KasiskiAnalyzer#findPossibleKeyLengthsApproximate).
+ */
+public final class SamplingOptions {
+    public static final int DEFAULT_INITIAL_SAMPLES = 1000;
+    public static final int DEFAULT_MAX_SAMPLES = 256000;
+    public static final int DEFAULT_REPEAT_WINDOW = 4096;
+    public static final double DEFAULT_Z_SCORE = 1.96;  // 95% confidence
+
+    private final long seed;
+    private final int initialSamples;
+    private final int maxSamples;
+    private final int repeatWindow;
+    private final double zScore;
+    private final boolean stratified;
+
+    public SamplingOptions(long seed, int initialSamples, int maxSamples, int repeatWindow, double zScore, boolean stratified) {
+        if (initialSamples < 1 || maxSamples < initialSamples) {
+            throw new IllegalArgumentException("Sample sizes must satisfy 1 <= initial <= max");
+        }
+        if (repeatWindow < 1) {
+            throw new IllegalArgumentException("Repeat window must be positive");
+        }
+        if (zScore <= 0) {
+            throw new IllegalArgumentException("Z score must be positive");
+        }
+        this.seed = seed;
+        this.initialSamples = initialSamples;
+        this.maxSamples = maxSamples;
+        this.repeatWindow = repeatWindow;
+        this.zScore = zScore;
+        this.stratified = stratified;
+    }
+
+    public static SamplingOptions defaults() {
+        return new SamplingOptions(System.nanoTime(), DEFAULT_INITIAL_SAMPLES, DEFAULT_MAX_SAMPLES,
+            DEFAULT_REPEAT_WINDOW, DEFAULT_Z_SCORE, true);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Offsets sampled in the first round; each further round doubles the total
+    public int getInitialSamples() {
+        return initialSamples;
+    }
+
+    public int getMaxSamples() {
+        return maxSamples;
+    }
+
+    // How far ahead of a sampled offset to look for the next occurrence of its pattern
+    public int getRepeatWindow() {
+        return repeatWindow;
+    }
+
+    public double getZScore() {
+        return zScore;
+    }
+
+    // Spread offsets evenly over the text instead of drawing them independently
+    public boolean isStratified() {
+        return stratified;
+    }
+}
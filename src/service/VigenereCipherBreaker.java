@@ -1,6 +1,7 @@
 package service;
 
 import entity.Key;
+import entity.OffHeapCipherText;
 import interfaces.ICipherText;
 import interfaces.IKey;
 import util.Language;
@@ -9,19 +10,109 @@ import java.util.*;
 
 public class VigenereCipherBreaker {
     private final KasiskiAnalyzer kasiskiAnalyzer;
-    private final FrequencyAnalyzer frequencyAnalyzer;
-    private static final int MIN_KEY_LENGTH = 2;
+    private final LanguageIdentifier languageIdentifier;
+    private final MutualIndexSolver mutualIndexSolver;
+    static final int MIN_KEY_LENGTH = 2;
+    private static final double RECOVERY_TIME_SHARE = 0.1;  // Share of the remaining deadline kept for key recovery
 
     public VigenereCipherBreaker() {
         this.kasiskiAnalyzer = new KasiskiAnalyzer();
-        this.frequencyAnalyzer = new FrequencyAnalyzer();
+        this.languageIdentifier = new LanguageIdentifier();
+        this.mutualIndexSolver = new MutualIndexSolver();
     }
 
     public IKey analyzeKey(ICipherText cipherText) {
+        return analyzeKey(cipherText, AnalysisContext.unbounded());
+    }
+
+    public IKey analyzeKey(ICipherText cipherText, AnalysisContext context) {
         if (cipherText == null) {
             throw new IllegalArgumentException("CipherText cannot be null");
         }
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
         
+        int keyLength = resolveKeyLength(cipherText, context);
+        return recoverKey(new ColumnHistograms(cipherText.getText(), keyLength), cipherText.getLanguage(), context);
+    }
+
+    // Recovers the key from the column histograms stored in a persisted index, without reading the text
+    public IKey analyzeKey(AnalysisIndex index, int keyLength) {
+        if (index == null) {
+            throw new IllegalArgumentException("AnalysisIndex cannot be null");
+        }
+        if (keyLength < MIN_KEY_LENGTH || keyLength > index.getTextLength()) {
+            throw new IllegalArgumentException("Invalid key length: " + keyLength +
+                ". Must be between " + MIN_KEY_LENGTH + " and " + index.getTextLength());
+        }
+        return recoverKey(index.getColumnHistograms(keyLength), index.getLanguage(), AnalysisContext.unbounded());
+    }
+
+    public IKey analyzeKey(OffHeapCipherText cipherText, int keyLength) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        if (keyLength < MIN_KEY_LENGTH || keyLength > cipherText.length()) {
+            throw new IllegalArgumentException("Invalid key length: " + keyLength +
+                ". Must be between " + MIN_KEY_LENGTH + " and " + cipherText.length());
+        }
+        return recoverKey(ColumnHistograms.of(cipherText, keyLength), cipherText.getLanguage(), AnalysisContext.unbounded());
+    }
+
+    private IKey recoverKey(ColumnHistograms histograms, Language language, AnalysisContext context) {
+        if (language == null) {
+            throw new IllegalArgumentException("Language cannot be null");
+        }
+        int keyLength = histograms.getKeyLength();
+        // Recovery is bounded by the key length, so once a length is chosen only cancellation stops it
+        context.checkCancelled();
+
+        // Columns too short to score on their own are aligned against each other instead
+        if (MutualIndexSolver.prefersFor(histograms)) {
+            IKey key = mutualIndexSolver.solve(histograms, language);
+            return new Key(key.getText());
+        }
+
+        // Find most likely shift for each column
+        double[][] scores = ColumnScoring.shiftScores(histograms, language);
+        StringBuilder keyBuilder = new StringBuilder();
+        
+        for (int column = 0; column < keyLength; column++) {
+            context.checkCancelled();
+            if (histograms.getColumnLength(column) == 0) {
+                throw new IllegalStateException("Empty substring encountered during analysis");
+            }
+            keyBuilder.append((char) ('A' + ColumnScoring.bestShift(scores[column])));
+        }
+
+        String keyText = keyBuilder.toString();
+        if (keyText.isEmpty()) {
+            throw new IllegalStateException("Failed to generate key");
+        }
+
+        return new Key(keyText);
+    }
+
+    // Recovers the key under every registered language from one set of column histograms
+    public List<LanguageIdentifier.LanguageCandidate> identifyLanguages(ICipherText cipherText) {
+        return identifyLanguages(cipherText, AnalysisContext.unbounded());
+    }
+
+    public List<LanguageIdentifier.LanguageCandidate> identifyLanguages(ICipherText cipherText, AnalysisContext context) {
+        if (cipherText == null) {
+            throw new IllegalArgumentException("CipherText cannot be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("AnalysisContext cannot be null");
+        }
+
+        int keyLength = resolveKeyLength(cipherText, context);
+        context.checkCancelled();
+        return languageIdentifier.identify(new ColumnHistograms(cipherText.getText(), keyLength));
+    }
+
+    private int resolveKeyLength(ICipherText cipherText, AnalysisContext context) {
         if (cipherText.getText().isEmpty()) {
             throw new IllegalArgumentException("CipherText cannot be empty");
         }
@@ -35,15 +126,16 @@ public class VigenereCipherBreaker {
                 throw new IllegalArgumentException("Key length must be at least " + MIN_KEY_LENGTH);
             }
         } else {
-            // Find possible key lengths
-            List<KasiskiAnalyzer.KeyLengthProbability> keyLengthProbs = kasiskiAnalyzer.findPossibleKeyLengths(cipherText);
+            // Find possible key lengths, leaving time to recover the key; a partial ranking
+            // still gives the best length scored so far
+            KeyLengthRanking ranking = kasiskiAnalyzer.rankKeyLengths(cipherText, context.reserve(RECOVERY_TIME_SHARE));
             
-            if (keyLengthProbs.isEmpty()) {
+            if (ranking.isEmpty()) {
                 throw new IllegalStateException("No possible key lengths found");
             }
 
             // Get the most probable key length
-            keyLength = keyLengthProbs.get(0).getLength();
+            keyLength = ranking.getBest().getLength();
         }
         
         if (keyLength < MIN_KEY_LENGTH || keyLength > cipherText.getText().length()) {
@@ -51,31 +143,7 @@ public class VigenereCipherBreaker {
                 ". Must be between " + MIN_KEY_LENGTH + " and " + cipherText.getText().length());
         }
 
-        // Split text into substrings based on key length
-        List<String> subTexts = cipherText.getSubstrings(keyLength);
-        
-        if (subTexts.isEmpty()) {
-            throw new IllegalStateException("Failed to split text into substrings");
-        }
-
-        // Find most likely shift for each substring
-        StringBuilder keyBuilder = new StringBuilder();
-        
-        for (String subText : subTexts) {
-            if (subText.isEmpty()) {
-                throw new IllegalStateException("Empty substring encountered during analysis");
-            }
-            Map<Character, Double> frequencies = frequencyAnalyzer.analyzeFrequencies(subText);
-            char mostLikelyShift = findMostLikelyShift(frequencies, cipherText.getLanguage());
-            keyBuilder.append(mostLikelyShift);
-        }
-
-        String keyText = keyBuilder.toString();
-        if (keyText.isEmpty()) {
-            throw new IllegalStateException("Failed to generate key");
-        }
-
-        return new Key(keyText);
+        return keyLength;
     }
 
     public String decrypt(ICipherText cipherText, IKey key) {
@@ -113,48 +181,4 @@ public class VigenereCipherBreaker {
         
         return plaintext.toString();
     }
-
-    private char findMostLikelyShift(Map<Character, Double> frequencies, Language language) {
-        if (frequencies == null || language == null) {
-            throw new IllegalArgumentException("Frequencies and Language cannot be null");
-        }
-
-        // Get expected frequencies for the language
-        Map<Character, Double> expectedFreqs = language.getLetterFrequencies();
-        
-        if (expectedFreqs.isEmpty()) {
-            throw new IllegalStateException("No frequency data available for language: " + language);
-        }
-
-        // Calculate score for each possible shift
-        double bestScore = Double.NEGATIVE_INFINITY;
-        char bestShift = 'A';
-        
-        for (char shift = 'A'; shift <= 'Z'; shift++) {
-            double score = 0;
-            
-            // For each letter
-            for (char c = 'A'; c <= 'Z'; c++) {
-                // Find shifted letter
-                char shiftedChar = (char) (((c - shift + 26) % 26) + 'A');
-                
-                // Observed frequency for this letter
-                double observedFreq = frequencies.getOrDefault(c, 0.0);
-                
-                // Expected frequency for shifted letter
-                double expectedFreq = expectedFreqs.getOrDefault(shiftedChar, 0.0);
-                
-                // Add frequency similarity to score
-                score += observedFreq * expectedFreq;
-            }
-            
-            // Update best score
-            if (score > bestScore) {
-                bestScore = score;
-                bestShift = shift;
-            }
-        }
-        
-        return bestShift;
-    }
 }
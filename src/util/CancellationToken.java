@@ -0,0 +1,16 @@
+package util;
+
+/**
+ * Shared flag that long-running analysis loops poll to stop early.
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,288 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader/writer for the local analysis API.
+ * Objects map to LinkedHashMap, arrays to List, numbers to Double.
+ */
+public final class Json {
+    // Bounds the recursion so hostile input like "[[[[..." fails cleanly instead of overflowing the stack
+    private static final int MAX_DEPTH = 64;
+
+    private final String source;
+    private int pos;
+    private int depth;
+
+    private Json(String source) {
+        this.source = source;
+        this.pos = 0;
+    }
+
+    public static Map<String, Object> parseObject(String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("JSON input cannot be null");
+        }
+        Json parser = new Json(source);
+        parser.skipWhitespace();
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != source.length()) {
+            throw new IllegalArgumentException("Unexpected trailing content at position " + parser.pos);
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("JSON body must be an object");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) value;
+        return object;
+    }
+
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        writeValue(out, value);
+        return out.toString();
+    }
+
+    private Object readValue() {
+        if (pos >= source.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON input");
+        }
+        char c = source.charAt(pos);
+        switch (c) {
+            case '{':
+                enterNested();
+                Map<String, Object> object = readObject();
+                depth--;
+                return object;
+            case '[':
+                enterNested();
+                List<Object> array = readArray();
+                depth--;
+                return array;
+            case '"':
+                return readString();
+            case 't':
+                expectLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                expectLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                expectLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private void enterNested() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("JSON nesting exceeds " + MAX_DEPTH + " levels at position " + pos);
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw new IllegalArgumentException("Expected string key at position " + pos);
+            }
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            object.put(key, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return object;
+            }
+            if (c != ',') {
+                throw new IllegalArgumentException("Expected ',' or '}' at position " + (pos - 1));
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            skipWhitespace();
+            array.add(readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw new IllegalArgumentException("Expected ',' or ']' at position " + (pos - 1));
+            }
+        }
+    }
+
+    private String readString() {
+        StringBuilder out = new StringBuilder();
+        pos++;
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"': out.append('"'); break;
+                case '\\': out.append('\\'); break;
+                case '/': out.append('/'); break;
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'n': out.append('\n'); break;
+                case 'r': out.append('\r'); break;
+                case 't': out.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > source.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape at position " + pos);
+                    }
+                    try {
+                        out.append((char) Integer.parseInt(source.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid unicode escape at position " + pos);
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape character '" + escaped + "' at position " + (pos - 1));
+            }
+        }
+    }
+
+    private Double readNumber() {
+        int start = pos;
+        while (pos < source.length() && "+-0123456789.eE".indexOf(source.charAt(pos)) >= 0) {
+            pos++;
+        }
+        if (start == pos) {
+            throw new IllegalArgumentException("Unexpected character '" + source.charAt(pos) + "' at position " + pos);
+        }
+        try {
+            return Double.valueOf(source.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number at position " + start);
+        }
+    }
+
+    private void expectLiteral(String literal) {
+        if (!source.startsWith(literal, pos)) {
+            throw new IllegalArgumentException("Unexpected token at position " + pos);
+        }
+        pos += literal.length();
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at position " + (pos - 1));
+        }
+    }
+
+    private char peek() {
+        if (pos >= source.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON input");
+        }
+        return source.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static void writeValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String || value instanceof Character || value instanceof Enum) {
+            writeString(out, value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                out.append("null");
+            } else {
+                out.append(d);
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                writeValue(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Iterable) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : (Iterable<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeValue(out, item);
+            }
+            out.append(']');
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -36,10 +36,130 @@ public enum Language {
             freq.put('Z', 0.001);
             return freq;
         }
+    },
+    GERMAN {
+        @Override
+        public Map<Character, Double> getLetterFrequencies() {
+            Map<Character, Double> freq = new HashMap<>();
+            freq.put('A', 0.065);
+            freq.put('B', 0.019);
+            freq.put('C', 0.027);
+            freq.put('D', 0.051);
+            freq.put('E', 0.164);
+            freq.put('F', 0.017);
+            freq.put('G', 0.030);
+            freq.put('H', 0.046);
+            freq.put('I', 0.066);
+            freq.put('J', 0.003);
+            freq.put('K', 0.014);
+            freq.put('L', 0.034);
+            freq.put('M', 0.025);
+            freq.put('N', 0.098);
+            freq.put('O', 0.026);
+            freq.put('P', 0.007);
+            freq.put('Q', 0.001);
+            freq.put('R', 0.070);
+            freq.put('S', 0.073);
+            freq.put('T', 0.062);
+            freq.put('U', 0.042);
+            freq.put('V', 0.008);
+            freq.put('W', 0.019);
+            freq.put('X', 0.001);
+            freq.put('Y', 0.001);
+            freq.put('Z', 0.011);
+            return freq;
+        }
+    },
+    FRENCH {
+        @Override
+        public Map<Character, Double> getLetterFrequencies() {
+            Map<Character, Double> freq = new HashMap<>();
+            freq.put('A', 0.076);
+            freq.put('B', 0.009);
+            freq.put('C', 0.033);
+            freq.put('D', 0.037);
+            freq.put('E', 0.147);
+            freq.put('F', 0.011);
+            freq.put('G', 0.009);
+            freq.put('H', 0.007);
+            freq.put('I', 0.075);
+            freq.put('J', 0.006);
+            freq.put('K', 0.001);
+            freq.put('L', 0.055);
+            freq.put('M', 0.030);
+            freq.put('N', 0.071);
+            freq.put('O', 0.058);
+            freq.put('P', 0.025);
+            freq.put('Q', 0.014);
+            freq.put('R', 0.067);
+            freq.put('S', 0.079);
+            freq.put('T', 0.072);
+            freq.put('U', 0.063);
+            freq.put('V', 0.018);
+            freq.put('W', 0.001);
+            freq.put('X', 0.004);
+            freq.put('Y', 0.001);
+            freq.put('Z', 0.003);
+            return freq;
+        }
+    },
+    SPANISH {
+        @Override
+        public Map<Character, Double> getLetterFrequencies() {
+            Map<Character, Double> freq = new HashMap<>();
+            freq.put('A', 0.115);
+            freq.put('B', 0.022);
+            freq.put('C', 0.040);
+            freq.put('D', 0.050);
+            freq.put('E', 0.122);
+            freq.put('F', 0.007);
+            freq.put('G', 0.018);
+            freq.put('H', 0.007);
+            freq.put('I', 0.062);
+            freq.put('J', 0.005);
+            freq.put('K', 0.001);
+            freq.put('L', 0.050);
+            freq.put('M', 0.032);
+            freq.put('N', 0.067);
+            freq.put('O', 0.087);
+            freq.put('P', 0.025);
+            freq.put('Q', 0.009);
+            freq.put('R', 0.069);
+            freq.put('S', 0.080);
+            freq.put('T', 0.046);
+            freq.put('U', 0.029);
+            freq.put('V', 0.011);
+            freq.put('W', 0.001);
+            freq.put('X', 0.002);
+            freq.put('Y', 0.010);
+            freq.put('Z', 0.005);
+            return freq;
+        }
     };
 
+    private volatile double[] frequencyVector;
+
     public abstract Map<Character, Double> getLetterFrequencies();
 
+    // Frequencies as a normalized A-Z array, for the array-based scoring kernels
+    public double[] getFrequencyVector() {
+        double[] vector = frequencyVector;
+        if (vector == null) {
+            Map<Character, Double> freq = getLetterFrequencies();
+            vector = new double[26];
+            double total = 0;
+            for (int i = 0; i < 26; i++) {
+                vector[i] = freq.getOrDefault((char) ('A' + i), 0.0);
+                total += vector[i];
+            }
+            for (int i = 0; i < 26; i++) {
+                vector[i] /= total;
+            }
+            frequencyVector = vector;
+        }
+        return vector.clone();
+    }
+
     public boolean isValidCharacter(char c) {
         return getLetterFrequencies().containsKey(Character.toUpperCase(c));
     }
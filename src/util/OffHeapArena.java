@@ -0,0 +1,260 @@
+package util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owner of off-heap segments for one analysis. Segments are addressed with long offsets,
+ * so they can exceed 2 GB, and become unusable as soon as the arena is closed.
+ *
+ * On Java 22+ memory comes from a shared java.lang.foreign.Arena: it is not bounded by
+ * -XX:MaxDirectMemorySize and close() frees it immediately. Older runtimes fall back to direct
+ * ByteBuffers, which count against -XX:MaxDirectMemorySize (by default the -Xmx value) and
+ * are only returned by the GC after close() drops them.
+ */
+public final class OffHeapArena implements AutoCloseable {
+    private static final int CHUNK_SHIFT = 30;  // 1 GiB per buffer
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object foreignArena;  // java.lang.foreign.Arena, or null on the direct buffer fallback
+    private final List<Segment> segments = new ArrayList<>();
+    private long allocatedBytes;
+    private boolean closed;
+
+    public OffHeapArena() {
+        this.foreignArena = ForeignMemory.AVAILABLE ? ForeignMemory.openArena() : null;
+    }
+
+    // True when segments are allocated through the Foreign Memory API rather than direct buffers
+    public static boolean usesForeignMemory() {
+        return ForeignMemory.AVAILABLE;
+    }
+
+    public ByteSegment allocateBytes(long count) {
+        ByteSegment segment = new ByteSegment(this, allocateChunks(count), count);
+        segments.add(segment);
+        return segment;
+    }
+
+    public LongSegment allocateLongs(long count) {
+        if (count > Long.MAX_VALUE / Long.BYTES) {
+            throw new IllegalArgumentException("Segment size overflows: " + count + " longs");
+        }
+        LongSegment segment = new LongSegment(this, allocateChunks(count * Long.BYTES), count);
+        segments.add(segment);
+        return segment;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.release();
+        }
+        segments.clear();
+        allocatedBytes = 0;
+        if (foreignArena != null) {
+            ForeignMemory.closeArena(foreignArena);
+        }
+    }
+
+    private ByteBuffer[] allocateChunks(long bytes) {
+        if (closed) {
+            throw new IllegalStateException("Arena is closed");
+        }
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Segment size cannot be negative");
+        }
+        int chunkCount = (int) ((bytes + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        if (foreignArena != null) {
+            // One native segment, viewed as 1 GiB buffers so access stays on the ByteBuffer fast path
+            Object segment = ForeignMemory.allocate(foreignArena, bytes);
+            for (int i = 0; i < chunkCount; i++) {
+                long offset = (long) i << CHUNK_SHIFT;
+                chunks[i] = ForeignMemory.asByteBuffer(segment, offset, Math.min(CHUNK_SIZE, bytes - offset));
+            }
+        } else {
+            long remaining = bytes;
+            for (int i = 0; i < chunkCount; i++) {
+                try {
+                    chunks[i] = ByteBuffer.allocateDirect((int) Math.min(CHUNK_SIZE, remaining));
+                } catch (OutOfMemoryError e) {
+                    throw new IllegalStateException("Cannot reserve " + bytes + " bytes of direct memory (" +
+                        allocatedBytes + " already held by this arena). Raise -XX:MaxDirectMemorySize, " +
+                        "which defaults to the -Xmx value, or run on Java 22+", e);
+                }
+                remaining -= chunks[i].capacity();
+            }
+        }
+        allocatedBytes += bytes;
+        return chunks;
+    }
+
+    // java.lang.foreign through method handles, so the project still builds and runs on older JDKs
+    private static final class ForeignMemory {
+        private static final int MIN_FEATURE_VERSION = 22;  // First release where the API is final
+
+        static final boolean AVAILABLE;
+        private static final MethodHandle OF_SHARED;
+        private static final MethodHandle ALLOCATE;
+        private static final MethodHandle AS_SLICE;
+        private static final MethodHandle AS_BYTE_BUFFER;
+        private static final MethodHandle CLOSE;
+
+        static {
+            MethodHandle ofShared = null;
+            MethodHandle allocate = null;
+            MethodHandle asSlice = null;
+            MethodHandle asByteBuffer = null;
+            MethodHandle close = null;
+            if (Runtime.version().feature() >= MIN_FEATURE_VERSION) {
+                try {
+                    Class<?> arena = Class.forName("java.lang.foreign.Arena");
+                    Class<?> segment = Class.forName("java.lang.foreign.MemorySegment");
+                    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                    ofShared = lookup.findStatic(arena, "ofShared", MethodType.methodType(arena));
+                    allocate = lookup.findVirtual(arena, "allocate",
+                        MethodType.methodType(segment, long.class, long.class));
+                    asSlice = lookup.findVirtual(segment, "asSlice",
+                        MethodType.methodType(segment, long.class, long.class));
+                    asByteBuffer = lookup.findVirtual(segment, "asByteBuffer", MethodType.methodType(ByteBuffer.class));
+                    close = lookup.findVirtual(arena, "close", MethodType.methodType(void.class));
+                } catch (ReflectiveOperationException e) {
+                    ofShared = null;  // Fall back to direct buffers
+                }
+            }
+            AVAILABLE = ofShared != null;
+            OF_SHARED = ofShared;
+            ALLOCATE = allocate;
+            AS_SLICE = asSlice;
+            AS_BYTE_BUFFER = asByteBuffer;
+            CLOSE = close;
+        }
+
+        static Object openArena() {
+            try {
+                return OF_SHARED.invoke();
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static Object allocate(Object arena, long bytes) {
+            try {
+                return ALLOCATE.invoke(arena, bytes, (long) Long.BYTES);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static ByteBuffer asByteBuffer(Object segment, long offset, long length) {
+            try {
+                return (ByteBuffer) AS_BYTE_BUFFER.invoke(AS_SLICE.invoke(segment, offset, length));
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static void closeArena(Object arena) {
+            try {
+                CLOSE.invoke(arena);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof RuntimeException) {
+                return (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return new IllegalStateException("Foreign memory call failed: " + e.getMessage(), e);
+        }
+    }
+
+    private abstract static class Segment {
+        private final OffHeapArena arena;
+        protected ByteBuffer[] chunks;
+        private final long size;
+
+        Segment(OffHeapArena arena, ByteBuffer[] chunks, long size) {
+            this.arena = arena;
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        protected final ByteBuffer chunk(long byteOffset) {
+            if (arena.closed) {
+                throw new IllegalStateException("Segment used after its arena was closed");
+            }
+            return chunks[(int) (byteOffset >>> CHUNK_SHIFT)];
+        }
+
+        protected final void checkIndex(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+        }
+
+        void release() {
+            chunks = null;
+        }
+    }
+
+    public static final class ByteSegment extends Segment {
+        ByteSegment(OffHeapArena arena, ByteBuffer[] chunks, long size) {
+            super(arena, chunks, size);
+        }
+
+        public byte get(long index) {
+            checkIndex(index);
+            return chunk(index).get((int) (index & CHUNK_MASK));
+        }
+
+        public void set(long index, byte value) {
+            checkIndex(index);
+            chunk(index).put((int) (index & CHUNK_MASK), value);
+        }
+    }
+
+    public static final class LongSegment extends Segment {
+        LongSegment(OffHeapArena arena, ByteBuffer[] chunks, long size) {
+            super(arena, chunks, size);
+        }
+
+        public long get(long index) {
+            checkIndex(index);
+            long offset = index * Long.BYTES;
+            return chunk(offset).getLong((int) (offset & CHUNK_MASK));
+        }
+
+        public void set(long index, long value) {
+            checkIndex(index);
+            long offset = index * Long.BYTES;
+            chunk(offset).putLong((int) (offset & CHUNK_MASK), value);
+        }
+    }
+}